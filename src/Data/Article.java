@@ -1,11 +1,18 @@
 package Data;
 
+import Index.Fields;
+
 public class Article {
 
     private String id; // IDs are alphanumeric so they become strings
     private String headline;
     private String content;
     private String summary;
+    private int docId = -1; // dense index assigned by ArticleLoader at load time
+
+    // Once the text is moved to a DocumentStore the String fields are dropped and getters decode on demand
+    private DocumentStore store;
+    private int record;
 
     // Constructor Method
     public Article(String id, String headline, String content) {
@@ -21,11 +28,45 @@ public class Article {
         this.summary = summary;
     }
 
+    Article(String id, DocumentStore store, int record) {
+        this.id = id;
+        this.store = store;
+        this.record = record;
+    }
+
     // Getters
     public String getId() { return id; }
-    public String getHeadline() { return headline; }
-    public String getContent() { return content; }
-    public String getSummary(){ return summary; }
+    public String getHeadline() { return store == null ? headline : store.read(record, Fields.HEADLINE); }
+    public String getContent() { return store == null ? content : store.read(record, Fields.CONTENT); }
+    public String getSummary(){ return store == null ? summary : store.read(record, Fields.SUMMARY); }
+    public int getDocId() { return docId; }
+
+    void setDocId(int docId) { this.docId = docId; }
+
+    // Same ID and text, no docID yet; stored text is shared, not copied
+    Article copy() {
+        return store == null ? new Article(id, headline, content, summary) : new Article(id, store, record);
+    }
+
+    DocumentStore getStore() { return store; }
+    int getRecord() { return record; }
+
+    // Text of a field for indexing; a stored field is decoded into scratch instead of a new String
+    CharSequence getField(int field, DocumentStore.Text scratch) {
+        if (store != null) return store.read(record, field, scratch) ? scratch : null;
+        return field == Fields.HEADLINE ? headline : field == Fields.SUMMARY ? summary : content;
+    }
+
+    // Moves the text off the heap
+    void storeIn(DocumentStore target) {
+        if (store == target) return;
+        int stored = target.append(id, getHeadline(), getSummary(), getContent());
+        this.store = target;
+        this.record = stored;
+        this.headline = null;
+        this.content = null;
+        this.summary = null;
+    }
 
     @Override
     public String toString() {
@@ -1,297 +1,1288 @@
 package Data;
 
 import HashMaps.HashMapCustom;
+import HashMaps.IntIntHashMap;
+import HashMaps.PerfectHashSet;
+import HashMaps.StringIntHashMap;
+import Index.Bm25F;
+import Index.DocIterator;
+import Index.FieldLengths;
+import Index.Fields;
+import Index.Metrics;
+import Index.PostingList;
+import Index.Query;
+import Index.QueryCache;
+import Index.SearchResult;
+import Index.TermAccumulator;
+import Index.TermDictionary;
+import Index.Tokenizer;
+import Index.TopKHeap;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.*;
-import java.util.regex.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 public class ArticleLoader {
 
+    // How matches are ranked: a fixed bonus per field a query term occurs in, or BM25F over the per-field
+    // term frequencies, document frequencies and field lengths
+    public enum Scoring {
+        FIELD_BONUS,
+        BM25F
+    }
+
     private static HashMapCustom<String, Article> articleMap;
-    private static HashMapCustom<String, HashSet<String>> indexMap;
-    private static HashMapCustom<String, Integer> wordFrequencyMap;
-    private static HashSet<String> stopWords;
-    private static String delimitersRegex;
+    private static ArrayList<Article> documents; // docId -> article
+    private static DocumentStore documentStore; // article text, off the heap
+    private static HashMapCustom<String, PostingList> indexMap;
+    private static StringIntHashMap wordFrequencyMap;
+    private static FieldLengths fieldLengths; // per docID, for BM25F
+    private static PerfectHashSet stopWords; // static after loading, tokens are checked straight from their buffer
+    private static volatile Tokenizer tokenizer;
+
+    private static final long DEFAULT_QUERY_CACHE_BYTES = 16L * 1024 * 1024;
+
+    // Incremental updates: added articles go to a delta segment that is merged into indexMap once it holds
+    // DELTA_MERGE_DOCS articles; deleted docIDs get a null document and a bit in a bitmap until compaction
+    // drops their postings.
+    private static final int DELTA_MERGE_DOCS = 256;
+    private static final double COMPACT_DELETED_RATIO = 0.1;
+
+    private static HashMap<String, PostingList.Builder> deltaBuilders;
+    private static HashMap<String, PostingList> deltaLists; // built from deltaBuilders, until a term gets a posting
+    private static int deltaDocCount;
+    private static BitSet deletedDocs;
+    private static StringIntHashMap deletedPostings; // per term, postings of deletedDocs, so BM25F counts live ones
+    private static StringIntHashMap publishedDeletedPostings; // frozen copy the latest snapshot scores with
+
+    // Publishing only copies what changed since the last snapshot: its documents are shared except for
+    // the chunks holding changedDocs, and delta lists of terms no article was added to since are reused
+    private static DocumentTable publishedDocuments;
+    private static int[] changedDocs = new int[16];
+    private static int changedDocCount;
+    private static ScheduledExecutorService compactor;
+
+    private static volatile Scoring scoring = Scoring.FIELD_BONUS;
+
+    // A query word no article contains is replaced by the indexed words within Query.autoEdits of it.
+    // Fuzzy and wildcard expansions keep only their best terms.
+    private static volatile boolean typoTolerance = true;
+    private static final int MAX_FUZZY_TERMS = 8;
+    private static final int MAX_WILDCARD_TERMS = 64;
+    private static HashMapCustom<String, PostingList> dictionaryMap; // indexMap termDictionary is built over
+    private static AtomicReference<TermDictionary> termDictionary;
+
+    private static final QueryCache queryCache = new QueryCache(DEFAULT_QUERY_CACHE_BYTES);
+
+    // Recorded only while Metrics is enabled. Loading and indexing report once per run, search once per
+    // query; the *_nanos histograms hold per-phase latencies, cached results only count towards the total.
+    private static final Metrics.Counter LOADED_ROWS = Metrics.counter("load_rows");
+    private static final Metrics.Counter SKIPPED_ROWS = Metrics.counter("load_skipped_rows");
+    private static final Metrics.Counter INDEXED_TOKENS = Metrics.counter("index_tokens");
+    private static final Metrics.Histogram POSTINGS_PER_TERM = Metrics.histogram("index_postings_per_term");
+    private static final Metrics.Histogram INDEX_PROBE_LENGTH = Metrics.histogram("index_map_probe_length");
+    private static final Metrics.Counter QUERIES = Metrics.counter("search_queries");
+    private static final Metrics.Histogram PARSE_NANOS = Metrics.histogram("search_parse_nanos");
+    private static final Metrics.Histogram FETCH_NANOS = Metrics.histogram("search_fetch_nanos");
+    private static final Metrics.Histogram SCORE_NANOS = Metrics.histogram("search_score_nanos");
+    private static final Metrics.Histogram RANK_NANOS = Metrics.histogram("search_rank_nanos");
+    private static final Metrics.Histogram TOTAL_NANOS = Metrics.histogram("search_total_nanos");
+
+    static {
+        Metrics.gauge("article_map_collisions", () -> articleMap == null ? 0 : articleMap.getCollisionCount());
+        Metrics.gauge("article_map_resizes", () -> articleMap == null ? 0 : articleMap.getResizeCount());
+        Metrics.gauge("index_map_collisions", () -> indexMap == null ? 0 : indexMap.getCollisionCount());
+        Metrics.gauge("index_map_resizes", () -> indexMap == null ? 0 : indexMap.getResizeCount());
+        Metrics.gauge("query_cache_hits", queryCache::getHits);
+        Metrics.gauge("query_cache_misses", queryCache::getMisses);
+        Metrics.gauge("query_cache_evictions", queryCache::getEvictions);
+        Metrics.gauge("query_cache_invalidations", queryCache::getInvalidations);
+        Metrics.gauge("query_cache_entries", queryCache::size);
+        Metrics.gauge("query_cache_used_bytes", queryCache::getUsedBytes);
+    }
+    private static long indexGeneration; // bumped whenever a new snapshot is published
+
+    // What queries read. Loading and indexing happen on one writer thread and only ever publish fresh maps,
+    // so a snapshot's contents never change once this volatile write makes it visible.
+    private static volatile IndexSnapshot snapshot;
 
     public ArticleLoader(int initialCapacity, double loadFactor,
                          HashMapCustom.HashFunctionType hashFunctionType, HashMapCustom.CollisionType collisionType)  {
 
         this.articleMap = new HashMapCustom<>(initialCapacity, loadFactor, hashFunctionType, collisionType);
+        this.documents = new ArrayList<>();
+        this.documentStore = new DocumentStore(1 << 20);
         this.indexMap = new HashMapCustom<>();
-        this.wordFrequencyMap = new HashMapCustom<>();
-        this.stopWords = new HashSet<>();
-        this.delimitersRegex = " ";
+        this.wordFrequencyMap = new StringIntHashMap();
+        this.fieldLengths = new FieldLengths();
+        this.stopWords = new PerfectHashSet(Collections.emptyList());
+        this.tokenizer = Tokenizer.WORD_CHARS;
+        resetIncrementalState();
+        publishSnapshot();
+    }
+
+    public ArticleLoader() {
+        this(101, 0.5, HashMapCustom.HashFunctionType.PAF, HashMapCustom.CollisionType.LINEAR_PROBING);
     }
 
     public static void loadStopWords(String filename) {
         try {
+            List<String> words = stopWords.keys();
             Scanner scanner = new Scanner(new File(filename));
             while (scanner.hasNext()) {
-                stopWords.add(scanner.next().toLowerCase());
+                words.add(scanner.next().toLowerCase());
             }
             scanner.close();
+            stopWords = new PerfectHashSet(words); // built once, never changes while indexing
             System.out.println("Success: " + filename + " uploaded. Total of " + stopWords.size() + " stop words.");
         } catch (FileNotFoundException e) {
             System.err.println("ERROR: " + filename + " can't be reached.");
         }
     }
 
+    // Every char listed in the file becomes a delimiter for indexing and for queries
     public static void loadDelimiters(String filename) {
-        StringBuilder allDelimiters = new StringBuilder();
+        StringBuilder delimiters = new StringBuilder();
         try {
-            Scanner scanner = new Scanner(new File(filename));
+            Scanner scanner = new Scanner(new File(filename), "UTF-8");
             while (scanner.hasNextLine()) {
-                String line = scanner.nextLine().trim();// Satırı oku ve boşlukları temizle
-
-                if (line.isEmpty() || line.startsWith("//")) continue;// YENİ EKLEME: Boş satırları ve yorum satırlarını atla
-
-                // 1. Yorumları sil
-                line = line.split("//")[0].trim();
-
-                // 2. Gereksiz Java kod parçalarını sil
-                line = line.replace("\"", "")
-                        .replace("+", "")
-                        .replace(";", "")
-                        .replace("String DELIMITERS =", "")
-                        // YENİ EKLEME: Kod içindeki olası diğer kalıntıları temizle
-                        .replace("String[] splitted = text.split(DELIMITERS)", "")
-                        .trim();
-
-                allDelimiters.append(line);
+                readStringLiterals(scanner.nextLine(), delimiters);
             }
             scanner.close();
-            // Regex formatına dönüştürürken fazladan parantezi kaldır
-            delimitersRegex = "[" + allDelimiters.toString().replace("[", "").replace("]", "") + "]";
-            System.out.println("Success: " + filename + " uploaded. Regex: " + delimitersRegex);
+            tokenizer = new Tokenizer(delimiters);
+            System.out.println("Success: " + filename + " uploaded. Total of " + delimiters.length() + " delimiters.");
         } catch (FileNotFoundException e) {
             System.err.println("ERROR: " + filename + " can't be reached.");
         }
     }
 
-    public static long loadArticles(String filename) {
-        String csvSplitRegex = ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)";
-        int linesRead = 0;
+    // The file is written as a Java string concatenation: collect the unescaped contents of every "..."
+    // literal on the line and skip // comments
+    private static void readStringLiterals(String line, StringBuilder delimiters) {
+        boolean inLiteral = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (!inLiteral) {
+                if (c == '"') inLiteral = true;
+                else if (c == '/' && i + 1 < line.length() && line.charAt(i + 1) == '/') return;
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char escaped = line.charAt(++i);
+                delimiters.append(escaped == 'r' ? '\r' : escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped);
+            } else if (c == '"') {
+                inLiteral = false;
+            } else {
+                delimiters.append(c);
+            }
+        }
+    }
+
+    public static synchronized long loadArticles(String filename) {
+        long start = System.nanoTime();
+        int recordsRead = 0;
         int articleCount = 0;
+        long fileLength = Math.max(1, new File(filename).length()); // bytes, about one per char for this CSV
 
-        try (Scanner fileScanner = new Scanner(new File(filename), "UTF-8")) {
-            if (fileScanner.hasNextLine()) fileScanner.nextLine(); // header
+        try (CsvReader csv = new CsvReader(filename)) {
+            csv.nextRecord(); // header
 
-            String line = "";
-            while (fileScanner.hasNextLine()) {
-                line = fileScanner.nextLine();
-                linesRead++;
-                String[] columns = line.split(csvSplitRegex, -1); // -1 to keep trailing empty cols
+            while (csv.nextRecord()) {
+                recordsRead++;
 
-                if (columns.length < 8) {
-                    System.err.println("Skipped line " + linesRead + ": expected >=8 columns but got " + columns.length);
+                if (csv.fieldCount() < 11) {
+                    System.err.println("Skipped record " + recordsRead + ": expected >=11 columns but got " + csv.fieldCount());
                     continue;
                 }
 
-                String id = stripQuotes(columns[0].trim());
-                String firstTopic = columns[3].trim();
-                String secondTopic = columns[4].trim();
-                String headline = stripQuotes(columns[6].trim()) + " Topics: [" + firstTopic + "], [" + secondTopic + "] ";
-                String summary = columns[7].trim();
-                String content = columns[10].trim();
+                String id = csv.field(0).trim();
+                String firstTopic = csv.field(3).trim();
+                String secondTopic = csv.field(4).trim();
+                String headline = csv.field(6).trim() + " Topics: [" + firstTopic + "], [" + secondTopic + "] ";
+                String summary = csv.field(7).trim();
+                String content = csv.field(10).trim();
 
 
                 Article article = new Article(id, headline, content, summary);
-                articleMap.put(id, article);
+                article.storeIn(documentStore);
+                Article previous = articleMap.put(id, article);
+                if (previous != null) {
+                    // same ID seen again: the new row replaces the old one under its docID
+                    article.setDocId(previous.getDocId());
+                    documents.set(previous.getDocId(), article);
+                    documentChanged(previous.getDocId());
+                } else {
+                    article.setDocId(documents.size());
+                    documents.add(article);
+                }
                 articleCount++;
 
                 if (articleMap.size() % 1000 == 0) {
-                    System.out.println("->  %" + (articleMap.size()/280) + " uploaded. (Last ID: " + id + ")");
+                    long percent = Math.min(100, 100 * csv.getCharsRead() / fileLength);
+                    System.out.println("->  %" + percent + " uploaded. (Last ID: " + id + ")");
                 }
             }
 
             System.out.println("Success: " + filename + " uploaded. Total of " + articleCount + " articles added.");
+            if (Metrics.isEnabled()) {
+                LOADED_ROWS.add(articleCount);
+                SKIPPED_ROWS.add(recordsRead - articleCount);
+                double rowsPerSecond = articleCount / Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+                Metrics.gauge("load_rows_per_second", () -> rowsPerSecond);
+            }
         } catch (FileNotFoundException e) {
             System.err.println("ERROR: " + filename + " can't be reached.");
+        } catch (IOException e) {
+            System.err.println("ERROR: " + filename + " can't be read: " + e.getMessage());
         }
 
         return articleMap.getCollisionCount();
     }
 
-    private static String stripQuotes(String s) {
-        if (s == null) return null;
-        if (s.length() >= 2 && s.startsWith("\"") && s.endsWith("\"")) {
-            s = s.substring(1, s.length() - 1);
+    // Writes the built index (documents, term dictionary and postings) to a binary snapshot
+    public static synchronized long saveIndex(String filename) {
+        long start = System.nanoTime();
+        if (deltaDocCount > 0 || !deletedDocs.isEmpty()) compactIndex(); // the file has no delta or delete bitmap
+        try {
+            IndexFile.write(filename, documents, indexMap, wordFrequencyMap, fieldLengths, tokenizer, stopWords);
+            System.out.println("Success: index saved to " + filename + ".");
+        } catch (IOException e) {
+            System.err.println("ERROR: " + filename + " can't be written: " + e.getMessage());
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    // Opens a snapshot written by saveIndex instead of loading and indexing the CSV; returns false if it can't be
+    // used, including when it was built with other delimiters or stop words than the loaded ones
+    public static synchronized boolean loadIndex(String filename) {
+        if (!new File(filename).isFile()) return false;
+
+        long start = System.nanoTime();
+        // Fresh maps and document list: the current ones may be part of a published snapshot, and the file's
+        // docIDs start over at 0. They replace the current ones only once the whole file has been read.
+        HashMapCustom<String, Article> loadedArticles = articleMap.emptyCopy();
+        ArrayList<Article> loadedDocuments = new ArrayList<>();
+        HashMapCustom<String, PostingList> loadedIndex = new HashMapCustom<>();
+        StringIntHashMap loadedFrequencies = new StringIntHashMap();
+        FieldLengths loadedLengths = new FieldLengths();
+        try {
+            IndexFile.read(filename, loadedArticles, loadedDocuments, loadedIndex, loadedFrequencies, loadedLengths,
+                    tokenizer, stopWords);
+        } catch (IOException e) {
+            System.err.println("ERROR: " + filename + " can't be read: " + e.getMessage());
+            return false;
         }
-        return s.replace("\"\"", "\"");
+        articleMap = loadedArticles;
+        documents = loadedDocuments;
+        indexMap = loadedIndex;
+        wordFrequencyMap = loadedFrequencies;
+        fieldLengths = loadedLengths;
+        resetIncrementalState();
+        publishSnapshot();
+        long millis = (System.nanoTime() - start) / 1000000;
+
+        System.out.println("Success: " + filename + " opened. Total of " + documents.size() + " articles and "
+                + indexMap.size() + " words in " + millis + "ms.");
+        return true;
     }
 
     public static long indexArticles() {
+        return indexArticles(1);
+    }
+
+    // Tokenizes contiguous docID ranges on a pool of worker threads and merges the partial indexes in
+    // range order, so the resulting postings are identical to a single-threaded run.
+    public static synchronized long indexArticles(int threadCount) {
         System.out.println("---Indexing---");
 
         long start = System.nanoTime();
         int indexedCount = 0;
 
-        Pattern pattern = Pattern.compile("\\b\\w+\\b");
+        // Rebuild from scratch so indexing twice doesn't double the word frequencies. The old maps stay
+        // untouched for queries still reading the published snapshot.
+        indexMap = new HashMapCustom<>();
+        wordFrequencyMap = new StringIntHashMap();
+        fieldLengths = new FieldLengths(documents.size());
+
+        int workers = Math.max(1, Math.min(threadCount, documents.size()));
+        int rangeSize = (documents.size() + workers - 1) / Math.max(1, workers);
+        List<IndexPartition> partitions = new ArrayList<>();
+        for (int from = 0; from < documents.size(); from += rangeSize) {
+            partitions.add(new IndexPartition(documents, from, Math.min(documents.size(), from + rangeSize)));
+        }
 
-        String articleId = null;
-        Article article = null;
-        String content = null;
-        Matcher matcher = null;
+        if (partitions.size() <= 1) {
+            for (IndexPartition partition : partitions) partition.call();
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(partitions.size());
+            try {
+                for (Future<IndexPartition> future : pool.invokeAll(partitions)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Indexing interrupted.", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Indexing failed.", e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
 
-        for (Map.Entry<String, Article> entry : articleMap.entrySet()) {
-            if (entry == null) continue;
-            if (entry.getKey() == null) continue;
+        // Merge partitions in docID order, into maps sized for the largest partition's vocabulary up front
+        // instead of doubling from 101 with a full rehash each time
+        int largestVocabulary = 0;
+        for (IndexPartition partition : partitions) largestVocabulary = Math.max(largestVocabulary, partition.terms.termCount());
+        HashMapCustom<String, PostingList.Builder> postingBuilders = new HashMapCustom<>();
+        postingBuilders.ensureCapacity(largestVocabulary);
+        wordFrequencyMap.ensureCapacity(largestVocabulary);
+        for (IndexPartition partition : partitions) {
+            indexedCount += partition.tokenCount;
+            partition.addFieldLengths(fieldLengths);
+
+            for (int termId = 0; termId < partition.terms.termCount(); termId++) {
+                String term = partition.terms.term(termId);
+                PostingList.Builder builder = postingBuilders.get(term);
+                if (builder == null) {
+                    postingBuilders.put(term, partition.postingBuilders.get(termId));
+                } else {
+                    builder.addAll(partition.postingBuilders.get(termId).build());
+                }
+                wordFrequencyMap.addTo(term, partition.wordFrequencies[termId]);
+            }
+        }
 
-            articleId = String.valueOf(entry.getKey());
-            article = entry.getValue();
-            if (article == null) continue;
+        boolean metrics = Metrics.isEnabled();
+        if (metrics) {
+            POSTINGS_PER_TERM.reset();
+            INDEX_PROBE_LENGTH.reset();
+        }
+        long postingBytes = 0;
+        indexMap.ensureCapacity(postingBuilders.size());
+        for (Map.Entry<String, PostingList.Builder> entry : postingBuilders.entrySet()) {
+            PostingList postings = entry.getValue().build();
+            indexMap.put(entry.getKey(), postings);
+            postingBytes += postings.sizeInBytes();
+            if (metrics) POSTINGS_PER_TERM.record(postings.size());
+        }
 
-            content = article.getContent();
-            if (content == null || content.isEmpty()) continue;
+        resetIncrementalState();
+        publishSnapshot();
 
-            matcher = pattern.matcher(content.toLowerCase());
+        long end = System.nanoTime();
+        long millis = (end - start) / 1000000;
 
-            while (matcher.find()) {
-                String word = matcher.group().trim();
+        if (metrics) {
+            INDEXED_TOKENS.add(indexedCount);
+            double tokensPerSecond = indexedCount / Math.max(1e-9, (end - start) / 1e9);
+            Metrics.gauge("index_tokens_per_second", () -> tokensPerSecond);
+            int[] probeLengths = indexMap.getProbeLengthHistogram();
+            for (int length = 0; length < probeLengths.length; length++) INDEX_PROBE_LENGTH.record(length, probeLengths[length]);
+        }
 
-                if (word.isEmpty() || stopWords.contains(word)) continue;
+        System.out.println("Success: Total of " + indexMap.size() + " words listed in "
+                + String.format(Locale.ROOT, "%.3f", (end - start) / 1e9) + " seconds"
+                + " using " + partitions.size() + " thread(s).");
+        System.out.println("Postings: " + indexedCount + " tokens compressed into " + (postingBytes / 1024) + " KB.");
+        System.out.println("---Indexing Complete---");
 
-                wordFrequencyMap.put(word, wordFrequencyMap.getOrDefault(word, 0) + 1);
+        return millis;
+    }
+
+    // Partial index over the docID range [from, to) of articles; only touches its own maps while running
+    private static class IndexPartition implements Callable<IndexPartition> {
+        private final List<Article> articles;
+        private final int from;
+        private final int to;
+        private final TermAccumulator terms = new TermAccumulator();
+        private final ArrayList<PostingList.Builder> postingBuilders = new ArrayList<>(); // by term id
+        private int[] wordFrequencies = new int[1024]; // by term id
+        private final int[] fieldLengths; // (docId - from) * Fields.COUNT + field
+        private int tokenCount;
+
+        IndexPartition(List<Article> articles, int from, int to) {
+            this.articles = articles;
+            this.from = from;
+            this.to = to;
+            this.fieldLengths = new int[(to - from) * Fields.COUNT];
+        }
+
+        @Override
+        public IndexPartition call() {
+            Tokenizer.Tokens tokens = tokenizer.tokens();
+            DocumentStore.Text text = new DocumentStore.Text();
 
-                HashSet<String> articleIds = indexMap.get(word);
-                if (articleIds == null) {
-                    articleIds = new HashSet<>();
-                    indexMap.put(word, articleIds);
+            // Walk articles in docID order so every term's postings are appended already sorted
+            for (int docId = from; docId < to; docId++) {
+                Article article = articles.get(docId);
+                if (article == null) continue;
+
+                tokenCount += collectTerms(article, tokens, text, terms);
+                for (int field = 0; field < Fields.COUNT; field++) {
+                    fieldLengths[(docId - from) * Fields.COUNT + field] = terms.fieldLength(field);
+                }
+
+                for (int i = 0; i < terms.articleTermCount(); i++) {
+                    int termId = terms.articleTerm(i);
+                    if (termId == postingBuilders.size()) postingBuilders.add(new PostingList.Builder());
+                    if (termId >= wordFrequencies.length) wordFrequencies = Arrays.copyOf(wordFrequencies, termId * 2);
+
+                    postingBuilders.get(termId).add(docId, terms.frequency(termId, Fields.HEADLINE),
+                            terms.frequency(termId, Fields.SUMMARY), terms.frequency(termId, Fields.CONTENT),
+                            terms.positions(), terms.positionOffset(termId));
+                    wordFrequencies[termId] += terms.totalFrequency(termId);
                 }
-                articleIds.add(articleId);
-                indexedCount++;
             }
+            return this;
         }
 
-        long end = System.nanoTime();
-        long millis = (end - start) / 1000000;
+        // Lengths of the range's articles in docID order
+        void addFieldLengths(FieldLengths target) {
+            for (int docId = from; docId < to; docId++) {
+                if (articles.get(docId) == null) continue;
+                int base = (docId - from) * Fields.COUNT;
+                target.add(docId, fieldLengths[base + Fields.HEADLINE], fieldLengths[base + Fields.SUMMARY],
+                        fieldLengths[base + Fields.CONTENT]);
+            }
+        }
+    }
 
-        System.out.println("Success: Total of " + indexMap.size() + " words listed in " + (double)(millis/1000) + " seconds.");
-        System.out.println("---Indexing Complete---");
+    // Standalone postings over articles, whose docIDs are their positions in the list, built with the loader's
+    // tokenizer and stop words; their field lengths go to fieldLengths. The loader's own index is left alone,
+    // ShardedIndex builds each of its shards with this on a worker of its own.
+    static HashMapCustom<String, PostingList> indexShard(List<Article> articles, FieldLengths fieldLengths) {
+        IndexPartition partition = new IndexPartition(articles, 0, articles.size()).call();
+        partition.addFieldLengths(fieldLengths);
+
+        HashMapCustom<String, PostingList> shardMap = new HashMapCustom<>();
+        shardMap.ensureCapacity(partition.terms.termCount());
+        for (int termId = 0; termId < partition.terms.termCount(); termId++) {
+            shardMap.put(partition.terms.term(termId), partition.postingBuilders.get(termId).build());
+        }
+        return shardMap;
+    }
 
-        return millis;
+    static Tokenizer getTokenizer() { return tokenizer; }
+
+    static PerfectHashSet getStopWords() { return stopWords; }
+
+    // Records which fields every term of the article occurs in, so searching never rescans the article text.
+    // Stored text is decoded into the reused text buffer. Returns the number of tokens indexed.
+    private static int collectTerms(Article article, Tokenizer.Tokens tokens, DocumentStore.Text text,
+                                    TermAccumulator terms) {
+        terms.nextArticle();
+        int tokenCount = 0;
+        int position = 0;
+        for (int field = 0; field < Fields.COUNT; field++) {
+            CharSequence fieldText = article.getField(field, text);
+            if (fieldText == null || fieldText.length() == 0) continue;
+
+            // Stop words aren't indexed but still take up a position, so phrases keep their gaps
+            tokens.reset(fieldText);
+            while (tokens.next()) {
+                int tokenPosition = position++;
+                if (stopWords.contains(tokens.buffer(), 0, tokens.length())) continue;
+
+                terms.add(tokens, field, tokenPosition);
+                tokenCount++;
+            }
+            position += Fields.POSITION_GAP;
+        }
+        return tokenCount;
     }
 
-    public static long  searchArticles(String searchQuery) {
+    // Indexes a new article without rebuilding; returns false if its ID is already loaded
+    public static synchronized boolean addArticle(Article article) {
+        if (!add(article)) return false;
+        publishSnapshot();
+        return true;
+    }
 
-        long start = System.nanoTime();
+    // Replaces the article with the same ID; it gets a new docID and the old one is masked as deleted
+    public static synchronized boolean updateArticle(Article article) {
+        if (!update(article)) return false;
+        publishSnapshot();
+        return true;
+    }
+
+    public static synchronized boolean deleteArticle(String id) {
+        if (!delete(id)) return false;
+        publishSnapshot();
+        return true;
+    }
+
+    // Batch versions for a feed: every change is applied, and queries see all of them at once from a single
+    // snapshot, which also clears the query cache only once. They return how many articles were changed.
+    public static synchronized int addArticles(List<Article> articles) {
+        int added = 0;
+        for (Article article : articles) if (add(article)) added++;
+        if (added > 0) publishSnapshot();
+        return added;
+    }
 
-        if (searchQuery == null || searchQuery.trim().isEmpty()) {
-            System.out.println("No word found for given search query");
-            long end = System.nanoTime();
-            long millis = (end - start) / 1000000;
-            return millis;
+    public static synchronized int updateArticles(List<Article> articles) {
+        int updated = 0;
+        for (Article article : articles) if (update(article)) updated++;
+        if (updated > 0) publishSnapshot();
+        return updated;
+    }
+
+    public static synchronized int deleteArticles(List<String> ids) {
+        int deleted = 0;
+        for (String id : ids) if (delete(id)) deleted++;
+        if (deleted > 0) publishSnapshot();
+        return deleted;
+    }
+
+    private static boolean add(Article article) {
+        if (articleMap.get(article.getId()) != null) {
+            System.err.println("ERROR: Article " + article.getId() + " already exists, use updateArticle.");
+            return false;
         }
+        appendArticle(article);
+        return true;
+    }
 
-        String normalizedQuery = normalizeText(searchQuery);
-        if (normalizedQuery.isEmpty()) {
-            System.out.println("No word found for given search query");
-            long end = System.nanoTime();
-            long millis = (end - start) / 1000000;
-            return millis;
+    private static boolean update(Article article) {
+        Article previous = articleMap.get(article.getId());
+        if (previous == null) {
+            System.err.println("ERROR: Article " + article.getId() + " can't be found.");
+            return false;
         }
+        unindexArticle(previous);
+        appendArticle(article);
+        return true;
+    }
 
-        String[] queryWords = normalizedQuery.split("\\s+");
-        if (queryWords.length == 0) {
-            System.out.println("No valid query words found.");
-            long end = System.nanoTime();
-            long millis = (end - start) / 1000000;
-            return millis;
+    private static boolean delete(String id) {
+        Article previous = articleMap.remove(id);
+        if (previous == null) {
+            System.err.println("ERROR: Article " + id + " can't be found.");
+            return false;
         }
+        unindexArticle(previous);
+        return true;
+    }
 
-        HashMap<String, Integer> articleScores = new HashMap<>();
+    // New docIDs are always above every indexed one, so the delta postings stay sorted and merge by appending.
+    // An article that already has a docID is held by a published snapshot, so a copy is indexed instead.
+    private static void appendArticle(Article article) {
+        if (article.getDocId() >= 0) article = article.copy();
+        if (article.getStore() == null) article.storeIn(documentStore); // stored ones may already be published
+        article.setDocId(documents.size());
+        documents.add(article);
+        articleMap.put(article.getId(), article);
+
+        TermAccumulator terms = new TermAccumulator();
+        collectTerms(article, tokenizer.tokens(), new DocumentStore.Text(), terms);
+        fieldLengths.add(article.getDocId(), terms.fieldLength(Fields.HEADLINE), terms.fieldLength(Fields.SUMMARY),
+                terms.fieldLength(Fields.CONTENT));
+        for (int i = 0; i < terms.articleTermCount(); i++) {
+            int termId = terms.articleTerm(i);
+            PostingList.Builder builder = deltaBuilders.get(terms.term(termId));
+            if (builder == null) {
+                builder = new PostingList.Builder();
+                deltaBuilders.put(terms.term(termId), builder);
+            }
+            deltaLists.remove(terms.term(termId)); // built again on the next publish
+            builder.add(article.getDocId(), terms.frequency(termId, Fields.HEADLINE),
+                    terms.frequency(termId, Fields.SUMMARY), terms.frequency(termId, Fields.CONTENT),
+                    terms.positions(), terms.positionOffset(termId));
+            wordFrequencyMap.addTo(terms.term(termId), terms.totalFrequency(termId));
+        }
 
-        HashSet<String> posting = null;
-        for (String term : queryWords) {
-            posting = indexMap.get(term);
-            if (posting == null) continue;
+        if (++deltaDocCount >= DELTA_MERGE_DOCS) mergeDelta();
+    }
 
-            for (String articleId : posting) {
-                Article article = articleMap.get(articleId);
-                if (article == null) continue;
+    // Postings stay until compaction, which the bitmap tells what to drop; queries skip the null document
+    private static void unindexArticle(Article article) {
+        int docId = article.getDocId();
+        boolean indexed = docId < fieldLengths.getDocumentCount(); // else it has no postings to discount
+        documents.set(docId, null);
+        documentChanged(docId);
+        deletedDocs.set(docId);
+        fieldLengths.remove(docId);
+
+        TermAccumulator terms = new TermAccumulator();
+        collectTerms(article, tokenizer.tokens(), new DocumentStore.Text(), terms);
+        for (int i = 0; i < terms.articleTermCount(); i++) {
+            int termId = terms.articleTerm(i);
+            if (wordFrequencyMap.addTo(terms.term(termId), -terms.totalFrequency(termId)) <= 0) {
+                wordFrequencyMap.remove(terms.term(termId));
+            }
+            if (indexed) deletedPostings.addTo(terms.term(termId), 1);
+        }
+        publishedDeletedPostings = null;
+    }
+
+    // Appends the delta segment to a copy of the main postings; the published indexMap is never modified
+    private static void mergeDelta() {
+        if (deltaDocCount == 0) return;
+
+        HashMapCustom<String, PostingList> merged = new HashMapCustom<>(indexMap.size() * 2, 0.5,
+                HashMapCustom.HashFunctionType.PAF, HashMapCustom.CollisionType.LINEAR_PROBING);
+        for (Map.Entry<String, PostingList> entry : indexMap.entrySet()) {
+            merged.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, PostingList.Builder> entry : deltaBuilders.entrySet()) {
+            PostingList main = merged.get(entry.getKey());
+            if (main == null) {
+                merged.put(entry.getKey(), entry.getValue().build());
+            } else {
+                PostingList.Builder builder = new PostingList.Builder();
+                builder.addAll(main);
+                builder.addAll(entry.getValue().build());
+                merged.put(entry.getKey(), builder.build());
+            }
+        }
+
+        indexMap = merged;
+        deltaBuilders = new HashMap<>();
+        deltaLists = new HashMap<>();
+        deltaDocCount = 0;
+    }
+
+    // Merges the delta segment, rewrites every posting list without the deleted docIDs and drops the
+    // tombstones deletes left in articleMap and wordFrequencyMap
+    public static synchronized void compactIndex() {
+        mergeDelta();
+
+        if (!deletedDocs.isEmpty()) {
+            HashMapCustom<String, PostingList> compacted = new HashMapCustom<>(indexMap.size() * 2, 0.5,
+                    HashMapCustom.HashFunctionType.PAF, HashMapCustom.CollisionType.LINEAR_PROBING);
+            PostingList.Cursor cursor = new PostingList.Cursor();
+            for (Map.Entry<String, PostingList> entry : indexMap.entrySet()) {
+                PostingList.Builder builder = new PostingList.Builder();
+                cursor.reset(entry.getValue());
+                while (cursor.next()) {
+                    if (deletedDocs.get(cursor.docId())) continue;
+                    builder.add(cursor);
+                }
+                if (builder.size() > 0) compacted.put(entry.getKey(), builder.build());
+            }
+            indexMap = compacted;
+            deletedDocs = new BitSet();
+            deletedPostings = new StringIntHashMap();
+            publishedDeletedPostings = null;
+        }
+
+        articleMap.compact();
+        wordFrequencyMap.compact();
+        publishSnapshot();
+    }
+
+    // Compacts only once enough deletes piled up to slow queries or waste table slots
+    public static synchronized boolean compactIfNeeded() {
+        int live = Math.max(1, articleMap.size());
+        boolean needed = deletedDocs.cardinality() > live * COMPACT_DELETED_RATIO
+                || articleMap.getTombstoneCount() > live * COMPACT_DELETED_RATIO;
+        if (needed) compactIndex();
+        return needed;
+    }
+
+    // Runs compactIfNeeded on a daemon thread every periodMillis until stopBackgroundCompaction is called
+    public static synchronized void startBackgroundCompaction(long periodMillis) {
+        if (compactor != null) return;
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(ArticleLoader::compactIfNeeded, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stopBackgroundCompaction() {
+        if (compactor == null) return;
+        compactor.shutdown();
+        compactor = null;
+    }
+
+    private static void resetIncrementalState() {
+        deltaBuilders = new HashMap<>();
+        deltaLists = new HashMap<>();
+        publishedDocuments = null; // documents is a new list, the next snapshot copies all of it
+        changedDocCount = 0;
+        deltaDocCount = 0;
+        deletedDocs = new BitSet();
+        deletedPostings = new StringIntHashMap();
+        publishedDeletedPostings = null;
+    }
+
+    private static void documentChanged(int docId) {
+        if (changedDocCount == changedDocs.length) changedDocs = Arrays.copyOf(changedDocs, 2 * changedDocCount);
+        changedDocs[changedDocCount++] = docId;
+    }
+
+    private static void publishSnapshot() {
+        // The main term dictionary only covers indexMap and is kept until a merge replaces it. Terms that so
+        // far only the delta has are looked up in the snapshot's own dictionary over deltaMap.
+        if (dictionaryMap != indexMap) {
+            dictionaryMap = indexMap;
+            termDictionary = new AtomicReference<>(); // built by the first query that needs it
+        }
+        HashMapCustom<String, PostingList> deltaMap = HashMapCustom.withExpectedSize(deltaBuilders.size(), 0.5,
+                HashMapCustom.HashFunctionType.PAF, HashMapCustom.CollisionType.LINEAR_PROBING);
+        for (Map.Entry<String, PostingList.Builder> entry : deltaBuilders.entrySet()) {
+            PostingList postings = deltaLists.get(entry.getKey());
+            if (postings == null) {
+                postings = entry.getValue().build();
+                deltaLists.put(entry.getKey(), postings);
+            }
+            deltaMap.put(entry.getKey(), postings);
+        }
+        publishedDocuments = publishedDocuments == null ? DocumentTable.of(documents)
+                : publishedDocuments.update(documents, changedDocs, changedDocCount);
+        changedDocCount = 0;
+        if (publishedDeletedPostings == null && !deletedPostings.isEmpty()) {
+            publishedDeletedPostings = deletedPostings.copy();
+        }
+        snapshot = new IndexSnapshot(publishedDocuments, indexMap, deltaMap, tokenizer, stopWords,
+                fieldLengths.scorer(publishedDeletedPostings), termDictionary,
+                ++indexGeneration);
+    }
+
+    // Latest published index; pin it to run several queries against the same version
+    public static IndexSnapshot getSnapshot() { return snapshot; }
+
+    public static SearchResult search(String searchQuery, int k, SearchResult result) {
+        return search(snapshot, searchQuery, k, result);
+    }
+
+    // Ranks the k best articles for the query into result, reusing its arrays; k <= 0 keeps every hit.
+    // Plain words are ORed; AND, OR, NOT, parentheses and "quoted phrases" are supported, see Index.Query.
+    // Nothing is printed, see SearchEngine.ResultPrinter for the console output. Safe to call from many
+    // threads as long as each one passes its own SearchResult.
+    public static SearchResult search(IndexSnapshot index, String searchQuery, int k, SearchResult result) {
 
-                int score = articleScores.getOrDefault(articleId, 0);
+        long start = System.nanoTime();
+        result.reset(searchQuery);
+
+        Query query = Query.parse(searchQuery, index.getTokenizer());
+        long normalized = System.nanoTime();
 
-                String normalizedTitle = normalizeText(article.getHeadline());
-                String normalizedContent = normalizeText(article.getContent());
-                String normalizedSummary = normalizeText(article.getSummary());
+        if (query == null) {
+            result.setEmptyQuery(true);
+            result.setTimings(normalized - start, 0, 0, 0, normalized - start);
+            return result;
+        }
 
-                if (normalizedTitle.contains(term)) {
-                    score += 19;
+        // Results are cached per scoring, normalized query and k until loading or indexing changes the index.
+        // Shards (generation < 0) aren't cached, their generations don't order against the loader's.
+        Bm25F bm25f = scoring == Scoring.BM25F ? index.getBm25F() : null;
+        boolean tolerant = typoTolerance;
+        String key = cacheKey(query, bm25f, tolerant, k);
+        boolean cacheable = queryCache.isEnabled() && index.getGeneration() >= 0;
+        QueryCache.Result ranked = cacheable ? queryCache.get(key, index.getGeneration()) : null;
+        long fetched = normalized, scored = normalized, rankedAt = normalized;
+
+        if (ranked != null) {
+            result.setCached(true);
+        } else {
+            IntIntHashMap articleScores;
+            int maxScore = 0;
+            if (query.isPlainDisjunction() && !(tolerant && hasUnknownTerm(index, query.terms()))) {
+                // Every posting of every term gets scored anyway, so walk the lists one after another
+                List<String> terms = query.terms();
+                PostingList[] postings = fetchPostings(index, terms);
+                fetched = System.nanoTime();
+                articleScores = scoreArticles(index, terms, postings, bm25f);
+                if (bm25f != null) {
+                    for (int i = 0; i < terms.size(); i++) {
+                        maxScore += maxScore(bm25f, terms.get(i), size(postings[2 * i]) + size(postings[2 * i + 1]));
+                    }
+                }
+            } else {
+                List<List<DocIterator.Term>> scoredWords = new ArrayList<>();
+                DocIterator matches = compile(index, query, tolerant, scoredWords);
+                fetched = System.nanoTime();
+                List<DocIterator.Term> scoredTerms = new ArrayList<>();
+                for (List<DocIterator.Term> expansions : scoredWords) scoredTerms.addAll(expansions);
+                articleScores = scoreMatches(index, matches, scoredTerms, bm25f);
+                if (bm25f != null) {
+                    // A word expanded to several terms counts once, with its best-scoring term
+                    for (List<DocIterator.Term> expansions : scoredWords) {
+                        int best = 0;
+                        for (DocIterator.Term term : expansions) {
+                            best = Math.max(best, maxScore(bm25f, term.getTerm(), (int) term.cost()));
+                        }
+                        maxScore += best;
+                    }
                 }
+            }
+            scored = System.nanoTime();
+
+            ranked = new QueryCache.Result(selectTop(articleScores, k), articleScores.size(), maxScore);
+            rankedAt = System.nanoTime();
+
+            if (cacheable) queryCache.put(key, ranked, index.getGeneration());
+        }
+
+        result.setHits(ranked.getRanked(), ranked.getTotalHits());
+        result.setMaxScore(ranked.getMaxScore());
+        long end = System.nanoTime();
+        result.setTimings(normalized - start, fetched - normalized, scored - fetched, rankedAt - scored, end - start);
+        if (Metrics.isEnabled()) recordTimings(result);
+        return result;
+    }
 
-                if(normalizedSummary.contains(term)){
-                    score += 7;
+    // Ranks every query as search does, each into a new SearchResult, sharing the work queries have in
+    // common. Plain ORs of words are scored once per distinct query, every distinct word's postings are
+    // fetched and decoded into docIDs and scores once, and each query then only adds up the decoded lists
+    // of its words. Decoding and scoring are split into contiguous slices over threadCount threads. Other
+    // query shapes, and unknown words under typo tolerance, go through search one by one. A repeated query
+    // is marked cached, it reuses the first one's ranking; postings time is the decoding time shared out.
+    public static SearchResult[] searchBatch(IndexSnapshot index, List<String> searchQueries, int k, int threadCount) {
+        int queryCount = searchQueries.size();
+        SearchResult[] results = new SearchResult[queryCount];
+        Bm25F bm25f = scoring == Scoring.BM25F ? index.getBm25F() : null;
+        boolean tolerant = typoTolerance;
+        boolean cacheable = queryCache.isEnabled() && index.getGeneration() >= 0;
+
+        // Distinct batched queries and the distinct terms of those the cache can't answer, by first appearance
+        HashMap<String, Integer> batchIds = new HashMap<>(); // cache key -> batched query
+        List<String> keys = new ArrayList<>();
+        List<int[]> queryTerms = new ArrayList<>(); // term ids per batched query, repeated words kept
+        List<QueryCache.Result> ranked = new ArrayList<>(); // null until scored
+        StringIntHashMap termIds = new StringIntHashMap();
+        List<String> terms = new ArrayList<>();
+        int[] batchOf = new int[queryCount]; // -1 for queries answered by search
+        boolean[] repeated = new boolean[queryCount];
+        long[] parseNanos = new long[queryCount];
+
+        for (int i = 0; i < queryCount; i++) {
+            long start = System.nanoTime();
+            Query query = Query.parse(searchQueries.get(i), index.getTokenizer());
+            parseNanos[i] = System.nanoTime() - start;
+            batchOf[i] = -1;
+            if (query == null || !query.isPlainDisjunction() || (tolerant && hasUnknownTerm(index, query.terms()))) {
+                results[i] = search(index, searchQueries.get(i), k, new SearchResult());
+                continue;
+            }
+
+            String key = cacheKey(query, bm25f, tolerant, k);
+            Integer batchId = batchIds.get(key);
+            if (batchId != null) {
+                batchOf[i] = batchId;
+                repeated[i] = true;
+                continue;
+            }
+            batchOf[i] = keys.size();
+            batchIds.put(key, keys.size());
+            keys.add(key);
+            QueryCache.Result cached = cacheable ? queryCache.get(key, index.getGeneration()) : null;
+            ranked.add(cached);
+            repeated[i] = cached != null;
+
+            int[] ids = new int[cached != null ? 0 : query.terms().size()];
+            for (int t = 0; t < ids.length; t++) {
+                String term = query.terms().get(t);
+                ids[t] = termIds.get(term, -1);
+                if (ids[t] < 0) {
+                    ids[t] = terms.size();
+                    termIds.put(term, terms.size());
+                    terms.add(term);
                 }
+            }
+            queryTerms.add(ids);
+        }
 
-                if (normalizedContent.contains(term)) {
-                    score += 5;
+        int batchCount = keys.size();
+        DecodedTerm[] decoded = new DecodedTerm[terms.size()];
+        long[] scoreNanos = new long[batchCount];
+        long[] rankNanos = new long[batchCount];
+        boolean[] scoredHere = new boolean[batchCount];
+        long decodeNanos;
+
+        int workers = Math.max(1, threadCount);
+        ExecutorService pool = workers > 1 ? Executors.newFixedThreadPool(workers) : null;
+        try {
+            long decodeStart = System.nanoTime();
+            runSlices(pool, workers, decoded.length, (from, to) -> {
+                for (int t = from; t < to; t++) decoded[t] = decode(index, terms.get(t), bm25f);
+            });
+            decodeNanos = System.nanoTime() - decodeStart;
+
+            runSlices(pool, workers, batchCount, (from, to) -> {
+                for (int b = from; b < to; b++) {
+                    if (ranked.get(b) != null) continue;
+                    long start = System.nanoTime();
+                    IntIntHashMap articleScores = new IntIntHashMap();
+                    int maxScore = 0;
+                    for (int termId : queryTerms.get(b)) {
+                        DecodedTerm term = decoded[termId];
+                        for (int p = 0; p < term.size; p++) articleScores.addTo(term.docIds[p], term.scores[p]);
+                        maxScore += term.maxScore;
+                    }
+                    long scored = System.nanoTime();
+                    ranked.set(b, new QueryCache.Result(selectTop(articleScores, k), articleScores.size(), maxScore));
+                    scoreNanos[b] = scored - start;
+                    rankNanos[b] = System.nanoTime() - scored;
+                    scoredHere[b] = true;
                 }
+            });
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
 
-                articleScores.put(articleId, score);
+        int scoredCount = 0;
+        for (int b = 0; b < batchCount; b++) {
+            if (!scoredHere[b]) continue;
+            scoredCount++;
+            if (cacheable) queryCache.put(keys.get(b), ranked.get(b), index.getGeneration());
+        }
+        long decodeShare = decodeNanos / Math.max(1, scoredCount);
+
+        for (int i = 0; i < queryCount; i++) {
+            if (batchOf[i] < 0) continue;
+            int b = batchOf[i];
+            SearchResult result = new SearchResult();
+            result.reset(searchQueries.get(i));
+            result.setCached(repeated[i]);
+            result.setHits(ranked.get(b).getRanked(), ranked.get(b).getTotalHits());
+            result.setMaxScore(ranked.get(b).getMaxScore());
+            if (repeated[i]) result.setTimings(parseNanos[i], 0, 0, 0, parseNanos[i]);
+            else result.setTimings(parseNanos[i], decodeShare, scoreNanos[b], rankNanos[b],
+                    parseNanos[i] + decodeShare + scoreNanos[b] + rankNanos[b]);
+            if (Metrics.isEnabled()) recordTimings(result);
+            results[i] = result;
+        }
+        return results;
+    }
+
+    // A term's live postings with their scores, decoded once for every query of a batch that uses it
+    private static final class DecodedTerm {
+        private final int[] docIds;
+        private final int[] scores;
+        private final int size;
+        private final int maxScore; // 0 under the field bonuses, as in search
+
+        DecodedTerm(int[] docIds, int[] scores, int size, int maxScore) {
+            this.docIds = docIds;
+            this.scores = scores;
+            this.size = size;
+            this.maxScore = maxScore;
+        }
+    }
+
+    private static DecodedTerm decode(IndexSnapshot index, String term, Bm25F bm25f) {
+        PostingList main = index.getPostings(term);
+        PostingList delta = index.getDeltaPostings(term);
+        int docFrequency = size(main) + size(delta);
+        float idf = bm25f == null ? 0 : bm25f.idf(term, docFrequency);
+
+        int[] docIds = new int[docFrequency];
+        int[] scores = new int[docFrequency];
+        int count = 0;
+        PostingList.Cursor cursor = new PostingList.Cursor();
+        for (PostingList list : new PostingList[] {main, delta}) {
+            if (list == null) continue;
+            cursor.reset(list);
+            while (cursor.next()) {
+                if (index.isDeleted(cursor.docId())) continue;
+                docIds[count] = cursor.docId();
+                scores[count++] = bm25f == null ? cursor.fieldScore() : bm25f.score(idf, cursor);
             }
         }
+        return new DecodedTerm(docIds, scores, count, bm25f == null ? 0 : maxScore(bm25f, term, docFrequency));
+    }
+
+    private interface Slice {
+        void run(int from, int to);
+    }
 
-        // Hiç eşleşme yoksa
-        if (articleScores.isEmpty()) {
-            System.out.println("No articles found for your query.");
-            long end = System.nanoTime();
-            long millis = (end - start) / 1000000;
-            return millis;
+    // Runs [0, count) as contiguous slices on the pool, or on the calling thread without one
+    private static void runSlices(ExecutorService pool, int workers, int count, Slice slice) {
+        if (pool == null || count <= 1) {
+            slice.run(0, count);
+            return;
+        }
+        int rangeSize = (count + workers - 1) / workers;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < count; from += rangeSize) {
+            int sliceFrom = from;
+            int sliceTo = Math.min(count, from + rangeSize);
+            tasks.add(() -> {
+                slice.run(sliceFrom, sliceTo);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch search interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch search failed.", e.getCause());
         }
+    }
 
-        List<Map.Entry<String, Integer>> sortedResults = new ArrayList<>(articleScores.entrySet());
-        sortedResults.sort((a, b) -> b.getValue().compareTo(a.getValue()));
+    // Results are cached per scoring, typo tolerance, k and normalized query
+    private static String cacheKey(Query query, Bm25F bm25f, boolean tolerant, int k) {
+        return (bm25f != null ? "bm25f:" : "") + (tolerant ? "" : "exact:") + Math.max(0, k) + ":" + query;
+    }
 
-        System.out.println("\n--- Search Results for '" + searchQuery + "' ---");
-        int shown = 0;
+    private static void recordTimings(SearchResult result) {
+        QUERIES.increment();
+        PARSE_NANOS.record(result.getNormalizeNanos());
+        if (!result.isCached()) {
+            FETCH_NANOS.record(result.getPostingsNanos());
+            SCORE_NANOS.record(result.getScoreNanos());
+            RANK_NANOS.record(result.getRankNanos());
+        }
+        TOTAL_NANOS.record(result.getTotalNanos());
+    }
 
-        String relevancy = "";
-        for (Map.Entry<String, Integer> entry : sortedResults) {
-            String articleId = entry.getKey();
-            int score = entry.getValue();
-            Article article_results = articleMap.get(articleId);
-            if (article_results == null) continue;
+    // Main and delta posting list of every query word, null where the word isn't indexed
+    private static PostingList[] fetchPostings(IndexSnapshot index, List<String> queryWords) {
+        PostingList[] postings = new PostingList[2 * queryWords.size()];
+        for (int i = 0; i < queryWords.size(); i++) {
+            postings[2 * i] = index.getPostings(queryWords.get(i));
+            postings[2 * i + 1] = index.getDeltaPostings(queryWords.get(i));
+        }
+        return postings;
+    }
 
-            if(score>70){
-                relevancy = "HIGHLY Relevant";
-            } else if(score>60){
-                relevancy = "Very Relevant";
-            } else if(score>31){
-                relevancy = "Relevant";
-            } else{
-                relevancy = "Irrelevant";
+    // Iterator over the documents matching the query, null if none can. Stop words are dropped from
+    // conjunctions and disjunctions. Term iterators whose field scores count are added to scoredWords, one
+    // list per query word; negated clauses only filter. Fuzzy and wildcard queries, and with tolerant set
+    // unknown words, become the OR of the indexed terms they expand to, listed together.
+    private static DocIterator compile(IndexSnapshot index, Query query, boolean tolerant,
+                                       List<List<DocIterator.Term>> scoredWords) {
+        if (query instanceof Query.Term) {
+            String term = ((Query.Term) query).getTerm();
+            if (tolerant && isUnknown(index, term)) {
+                return anyOf(index, index.fuzzyTerms(term, Query.autoEdits(term.length()), MAX_FUZZY_TERMS), scoredWords);
             }
+            return anyOf(index, Collections.singletonList(term), scoredWords);
+        }
 
-            System.out.println("[" + relevancy + "][score: " + score + "pts] " + article_results.getHeadline());
-            shown++;
+        if (query instanceof Query.Fuzzy) {
+            Query.Fuzzy fuzzy = (Query.Fuzzy) query;
+            return anyOf(index, index.fuzzyTerms(fuzzy.getTerm(), fuzzy.getMaxEdits(), MAX_FUZZY_TERMS), scoredWords);
+        }
 
-            if (shown >= 25) break; // ilk 20 sonucu göster
+        if (query instanceof Query.Wildcard) {
+            return anyOf(index, index.wildcardTerms(((Query.Wildcard) query).getPattern(), MAX_WILDCARD_TERMS), scoredWords);
         }
 
-        long end = System.nanoTime();
-        long millis = (end - start) / 1000000;
+        if (query instanceof Query.Phrase) {
+            // Stop words have no postings, they only shift the offsets of the words after them
+            List<String> words = ((Query.Phrase) query).getTerms();
+            List<DocIterator.Term> terms = new ArrayList<>();
+            int[] offsets = new int[words.size()];
+            for (int i = 0; i < words.size(); i++) {
+                if (index.isStopWord(words.get(i))) continue;
+                PostingList main = index.getPostings(words.get(i));
+                PostingList delta = index.getDeltaPostings(words.get(i));
+                if (main == null && delta == null) return null;
+
+                offsets[terms.size()] = i;
+                terms.add(new DocIterator.Term(words.get(i), main, delta));
+            }
+            if (terms.isEmpty()) return null;
 
-        System.out.println("\nTotal results: " + sortedResults.size());
+            for (DocIterator.Term term : terms) scoredWords.add(Collections.singletonList(term));
+            return terms.size() == 1 ? terms.get(0) : new DocIterator.Phrase(terms, Arrays.copyOf(offsets, terms.size()));
+        }
 
-        return millis;
+        if (query instanceof Query.And) {
+            Query.And and = (Query.And) query;
+            List<DocIterator> required = new ArrayList<>();
+            for (Query clause : and.getRequired()) {
+                if (isStopWord(index, clause)) continue;
+                DocIterator iterator = compile(index, clause, tolerant, scoredWords);
+                if (iterator == null) return null;
+                required.add(iterator);
+            }
+            if (required.isEmpty()) return null;
+
+            List<DocIterator> excluded = new ArrayList<>();
+            for (Query clause : and.getExcluded()) {
+                DocIterator iterator = isStopWord(index, clause) ? null : compile(index, clause, tolerant, new ArrayList<>());
+                if (iterator != null) excluded.add(iterator);
+            }
+            return required.size() == 1 && excluded.isEmpty() ? required.get(0) : new DocIterator.And(required, excluded);
+        }
+
+        List<DocIterator> clauses = new ArrayList<>();
+        for (Query clause : ((Query.Or) query).getClauses()) {
+            DocIterator iterator = compile(index, clause, tolerant, scoredWords);
+            if (iterator != null) clauses.add(iterator);
+        }
+        if (clauses.isEmpty()) return null;
+        return clauses.size() == 1 ? clauses.get(0) : new DocIterator.Or(clauses);
     }
 
-    public static String normalizeText(String text) {
-        if (text == null) return "";
+    // OR of the terms' postings, null if none of them is indexed; the indexed ones go to scoredWords as one word
+    private static DocIterator anyOf(IndexSnapshot index, List<String> terms, List<List<DocIterator.Term>> scoredWords) {
+        List<DocIterator.Term> expansions = new ArrayList<>();
+        List<DocIterator> clauses = new ArrayList<>();
+        for (String term : terms) {
+            PostingList main = index.getPostings(term);
+            PostingList delta = index.getDeltaPostings(term);
+            if (main == null && delta == null) continue;
+
+            DocIterator.Term iterator = new DocIterator.Term(term, main, delta);
+            expansions.add(iterator);
+            clauses.add(iterator);
+        }
+        if (clauses.isEmpty()) return null;
+        scoredWords.add(expansions);
+        return clauses.size() == 1 ? clauses.get(0) : new DocIterator.Or(clauses);
+    }
+
+    // A word worth correcting: no article of the whole collection has it (a shard asks its collection-wide
+    // statistics), it isn't a stop word and is long enough to allow an edit
+    private static boolean isUnknown(IndexSnapshot index, String term) {
+        if (Query.autoEdits(term.length()) == 0 || index.isStopWord(term)) return false;
+        int local = size(index.getPostings(term)) + size(index.getDeltaPostings(term));
+        return index.getBm25F().docFrequency(term, local) == 0;
+    }
+
+    private static boolean hasUnknownTerm(IndexSnapshot index, List<String> terms) {
+        for (String term : terms) if (isUnknown(index, term)) return true;
+        return false;
+    }
+
+    private static boolean isStopWord(IndexSnapshot index, Query clause) {
+        return clause instanceof Query.Term && index.isStopWord(((Query.Term) clause).getTerm());
+    }
+
+    // A match scores every query term found in it, like a plain query does: its field bonuses, or its BM25F
+    // score when bm25f isn't null
+    private static IntIntHashMap scoreMatches(IndexSnapshot index, DocIterator matches, List<DocIterator.Term> scoredTerms,
+                                              Bm25F bm25f) {
+        IntIntHashMap articleScores = new IntIntHashMap();
+        if (matches == null) return articleScores;
+
+        float[] idfs = new float[bm25f == null ? 0 : scoredTerms.size()];
+        for (int i = 0; i < idfs.length; i++) idfs[i] = bm25f.idf(scoredTerms.get(i).getTerm(), (int) scoredTerms.get(i).cost());
+
+        for (int docId = matches.nextDoc(); docId != DocIterator.NO_MORE_DOCS; docId = matches.nextDoc()) {
+            if (index.isDeleted(docId)) continue;
+
+            int score = 0;
+            for (int i = 0; i < scoredTerms.size(); i++) {
+                DocIterator.Term term = scoredTerms.get(i);
+                if (term.docId() != docId) continue;
+                score += bm25f == null ? term.fieldScore() : term.score(bm25f, idfs[i]);
+            }
+            articleScores.put(docId, score);
+        }
+        return articleScores;
+    }
+
+    // postings holds each query word's main and delta list next to each other, so a word's document
+    // frequency for BM25F is the sum of the pair
+    private static IntIntHashMap scoreArticles(IndexSnapshot index, List<String> terms, PostingList[] postings,
+                                               Bm25F bm25f) {
+        IntIntHashMap articleScores = new IntIntHashMap();
+
+        PostingList.Cursor cursor = new PostingList.Cursor();
+        for (int i = 0; i < postings.length; i++) {
+            PostingList list = postings[i];
+            if (list == null) continue;
+
+            cursor.reset(list);
+            if (bm25f == null) {
+                while (cursor.next()) {
+                    if (index.isDeleted(cursor.docId())) continue;
+                    articleScores.addTo(cursor.docId(), cursor.fieldScore());
+                }
+                continue;
+            }
+
+            float idf = bm25f.idf(terms.get(i / 2), size(postings[i & ~1]) + size(postings[i | 1]));
+            while (cursor.next()) {
+                if (index.isDeleted(cursor.docId())) continue;
+                articleScores.addTo(cursor.docId(), bm25f.score(idf, cursor));
+            }
+        }
+        return articleScores;
+    }
 
-        text = text.toLowerCase();
+    // Best BM25F score the term can add, what relevancy is measured against. A word no document has, like a
+    // stop word, adds nothing: its idf is the largest there is, a ceiling no hit could get near.
+    private static int maxScore(Bm25F bm25f, String term, int docFrequency) {
+        int collectionFrequency = bm25f.docFrequency(term, docFrequency);
+        return collectionFrequency > 0 ? bm25f.maxScore(bm25f.idf(collectionFrequency)) : 0;
+    }
+
+    private static int size(PostingList list) {
+        return list == null ? 0 : list.size();
+    }
+
+    // Higher score first, lower docID first on ties
+    private static long[] selectTop(IntIntHashMap articleScores, int k) {
+        if (k <= 0 || k >= articleScores.size()) {
+            long[] sortedResults = new long[articleScores.size()];
+            int matched = 0;
+            for (int slot = 0; slot < articleScores.capacity(); slot++) {
+                if (!articleScores.isOccupied(slot)) continue;
+                sortedResults[matched++] = pack(articleScores.valueAt(slot), articleScores.keyAt(slot));
+            }
+            Arrays.sort(sortedResults);
+            for (int i = 0, j = sortedResults.length - 1; i < j; i++, j--) {
+                long swap = sortedResults[i];
+                sortedResults[i] = sortedResults[j];
+                sortedResults[j] = swap;
+            }
+            return sortedResults;
+        }
+
+        TopKHeap topK = new TopKHeap(k);
+        for (int slot = 0; slot < articleScores.capacity(); slot++) {
+            if (!articleScores.isOccupied(slot)) continue;
+            topK.offer(pack(articleScores.valueAt(slot), articleScores.keyAt(slot)));
+        }
+        return topK.drainDescending();
+    }
+
+    private static long pack(int score, int docId) {
+        return ((long) score << 32) | (Integer.MAX_VALUE - docId);
+    }
+
+    public static Article getArticle(int docId) { return documents.get(docId); }
+
+    public static int getDocumentCount() { return documents.size(); }
 
-        // Noktalama işaretlerini boşlukla değiştir
-        text = text.replaceAll("[^a-z0-9\\s-]", " ");
+    public static QueryCache getQueryCache() { return queryCache; }
 
-        // Fazla boşlukları tek boşluğa indir
-        text = text.replaceAll("\\s+", " ").trim();
+    public static void setScoring(Scoring scoring) { ArticleLoader.scoring = scoring; }
 
-        return text;
+    public static Scoring getScoring() { return scoring; }
+
+    // Off: unknown query words match nothing, as they used to
+    public static void setTypoTolerance(boolean typoTolerance) { ArticleLoader.typoTolerance = typoTolerance; }
+
+    public static boolean isTypoTolerant() { return typoTolerance; }
+
+    // Memory budget of the query result cache in bytes; 0 turns caching off
+    public static void setQueryCacheBudget(long bytes) { queryCache.setBudgetBytes(bytes); }
+
+    public static long getQueryCacheBudget() { return queryCache.getBudgetBytes(); }
+
+    public static HashMapCustom<String, PostingList> getIndexMap() { return indexMap; }
+
+    public static StringIntHashMap getWordFrequencyMap() { return wordFrequencyMap; }
+
+    // Query text as the indexer sees it: the same tokens, lowercased and joined by single spaces
+    public static String normalizeText(String text) {
+        return normalize(tokenizer, text);
+    }
+
+    private static String normalize(Tokenizer tokenizer, String text) {
+        if (text == null) return "";
+
+        StringBuilder normalized = new StringBuilder(text.length());
+        Tokenizer.Tokens tokens = tokenizer.tokens().reset(text);
+        while (tokens.next()) {
+            if (normalized.length() > 0) normalized.append(' ');
+            normalized.append(tokens.buffer(), 0, tokens.length());
+        }
+        return normalized.toString();
     }
 
 }
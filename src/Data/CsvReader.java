@@ -0,0 +1,140 @@
+package Data;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Single-pass, quote-aware CSV tokenizer.
+ *
+ * Records are streamed one at a time into a reused char buffer; a field only becomes a String when
+ * field(i) is called. Quoted fields may contain commas, doubled quotes ("") and line breaks.
+ */
+public class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int bufferLength;
+    private int bufferPosition;
+
+    private char[] record = new char[1024];
+    private int recordLength;
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private int fieldCount;
+    private long charsRead;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public CsvReader(String filename) throws FileNotFoundException {
+        this(new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8));
+    }
+
+    // Reads the next record; returns false at end of input
+    public boolean nextRecord() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+
+        int c = read();
+        if (c == -1) return false;
+
+        boolean quoted = false;
+        boolean fieldWasQuoted = false;
+        startField();
+
+        while (true) {
+            if (quoted) {
+                if (c == -1) break; // unterminated quote, keep what we have
+                if (c == '"') {
+                    int next = peek();
+                    if (next == '"') {
+                        read();
+                        append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    append((char) c);
+                }
+            } else if (c == ',') {
+                endField();
+                startField();
+                fieldWasQuoted = false;
+            } else if (c == '\n' || c == -1) {
+                break;
+            } else if (c == '\r') {
+                if (peek() == '\n') read();
+                break;
+            } else if (c == '"' && !fieldWasQuoted && recordLength == fieldStart[fieldCount]) {
+                quoted = true;
+                fieldWasQuoted = true;
+            } else {
+                append((char) c);
+            }
+            c = read();
+        }
+
+        endField();
+        return true;
+    }
+
+    public int fieldCount() { return fieldCount; }
+
+    public String field(int index) {
+        if (index < 0 || index >= fieldCount) throw new IndexOutOfBoundsException("No field " + index + " in record.");
+        return new String(record, fieldStart[index], fieldEnd[index] - fieldStart[index]);
+    }
+
+    // Total characters consumed so far, used for throughput reporting
+    public long getCharsRead() { return charsRead; }
+
+    private void startField() {
+        if (fieldCount == fieldStart.length) {
+            fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+            fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+        }
+        fieldStart[fieldCount] = recordLength;
+    }
+
+    private void endField() {
+        fieldEnd[fieldCount] = recordLength;
+        fieldCount++;
+    }
+
+    private void append(char c) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[recordLength++] = c;
+    }
+
+    private int read() throws IOException {
+        if (bufferPosition == bufferLength && !fill()) return -1;
+        charsRead++;
+        return buffer[bufferPosition++];
+    }
+
+    private int peek() throws IOException {
+        if (bufferPosition == bufferLength && !fill()) return -1;
+        return buffer[bufferPosition];
+    }
+
+    private boolean fill() throws IOException {
+        bufferLength = reader.read(buffer, 0, BUFFER_SIZE);
+        bufferPosition = 0;
+        if (bufferLength <= 0) {
+            bufferLength = 0;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
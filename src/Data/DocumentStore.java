@@ -0,0 +1,190 @@
+package Data;
+
+import Index.Fields;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Article text kept outside the Java heap, addressed by record offset.
+ *
+ * A record is laid out like the doc store section of an IndexFile: id, headline, summary, content, each as
+ * (int length, UTF-8 bytes), length -1 for null. A store is either a growable direct buffer articles are
+ * appended to, or a read-only view over a mapped index file. Records are never moved or freed; the bytes
+ * of a replaced or deleted article stay until the whole store is dropped.
+ *
+ * One thread appends; any number of threads may read records that were appended before the article was
+ * published. Reads only use absolute gets, so they never disturb each other.
+ */
+public final class DocumentStore {
+
+    private static final int ID = 0; // slot of the id in a record, the text fields follow in Fields order
+    private static final int SLOTS = 4;
+
+    private volatile ByteBuffer data; // replaced by a bigger copy on growth, old records stay valid in both
+    private int size; // bytes in use
+    private final boolean readOnly;
+
+    public DocumentStore(int initialBytes) {
+        this.data = ByteBuffer.allocateDirect(Math.max(64, initialBytes));
+        this.readOnly = false;
+    }
+
+    private DocumentStore(ByteBuffer region) {
+        this.data = region;
+        this.size = region.limit();
+        this.readOnly = true;
+    }
+
+    // Records already written at the start of region, e.g. the doc store of a mapped IndexFile
+    static DocumentStore wrap(ByteBuffer region) {
+        return new DocumentStore(region.slice());
+    }
+
+    // Appends a record and returns its offset
+    int append(String id, String headline, String summary, String content) {
+        if (readOnly) throw new IllegalStateException("Document store is read only.");
+
+        byte[][] fields = new byte[SLOTS][];
+        fields[ID] = bytes(id);
+        fields[ID + 1 + Fields.HEADLINE] = bytes(headline);
+        fields[ID + 1 + Fields.SUMMARY] = bytes(summary);
+        fields[ID + 1 + Fields.CONTENT] = bytes(content);
+        long needed = 0;
+        for (byte[] field : fields) needed += 4 + (field == null ? 0 : field.length);
+        ensureCapacity(needed);
+
+        int record = size;
+        ByteBuffer buffer = data;
+        int position = record;
+        for (byte[] field : fields) {
+            buffer.putInt(position, field == null ? -1 : field.length);
+            position += 4;
+            if (field != null) {
+                buffer.put(position, field);
+                position += field.length;
+            }
+        }
+        size = position;
+        return record;
+    }
+
+    // Decodes one text field (Fields.HEADLINE, SUMMARY or CONTENT) of the record
+    String read(int record, int field) {
+        return readSlot(record, ID + 1 + field);
+    }
+
+    // Decodes the field into out without creating a String; returns false if the field is null
+    boolean read(int record, int field, Text out) {
+        ByteBuffer buffer = data;
+        int position = slotOffset(buffer, record, ID + 1 + field);
+        int length = buffer.getInt(position);
+        out.length = 0;
+        if (length < 0) return false;
+
+        byte[] bytes = out.bytes(length);
+        buffer.get(position + 4, bytes, 0, length);
+        char[] chars = out.chars(length); // UTF-8 never has fewer bytes than UTF-16 chars
+        int n = 0;
+        for (int i = 0; i < length; ) {
+            int b = bytes[i++] & 0xFF;
+            if (b < 0x80) {
+                chars[n++] = (char) b;
+            } else if (b < 0xE0) {
+                chars[n++] = (char) (((b & 0x1F) << 6) | (bytes[i++] & 0x3F));
+            } else if (b < 0xF0) {
+                chars[n++] = (char) (((b & 0x0F) << 12) | ((bytes[i++] & 0x3F) << 6) | (bytes[i++] & 0x3F));
+            } else {
+                int codePoint = ((b & 0x07) << 18) | ((bytes[i++] & 0x3F) << 12)
+                        | ((bytes[i++] & 0x3F) << 6) | (bytes[i++] & 0x3F);
+                chars[n++] = Character.highSurrogate(codePoint);
+                chars[n++] = Character.lowSurrogate(codePoint);
+            }
+        }
+        out.length = n;
+        return true;
+    }
+
+    // Writes the record bytes unchanged, they already are in the IndexFile doc store format
+    void copyRecord(int record, DataOutputStream out) throws IOException {
+        ByteBuffer buffer = data;
+        int end = slotOffset(buffer, record, SLOTS);
+        byte[] bytes = new byte[end - record];
+        buffer.get(record, bytes);
+        out.write(bytes);
+    }
+
+    // Off-heap bytes in use
+    public long sizeInBytes() { return size; }
+
+    public boolean isReadOnly() { return readOnly; }
+
+    private String readSlot(int record, int slot) {
+        ByteBuffer buffer = data;
+        int position = slotOffset(buffer, record, slot);
+        int length = buffer.getInt(position);
+        if (length < 0) return null;
+
+        byte[] bytes = new byte[length];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Walks the length prefixes of the slots before the requested one
+    private static int slotOffset(ByteBuffer buffer, int record, int slot) {
+        int position = record;
+        for (int i = 0; i < slot; i++) {
+            position += 4 + Math.max(0, buffer.getInt(position));
+        }
+        return position;
+    }
+
+    private void ensureCapacity(long needed) {
+        ByteBuffer buffer = data;
+        if (size + needed <= buffer.capacity()) return;
+
+        long capacity = Math.max(2L * buffer.capacity(), size + needed);
+        if (size + needed > Integer.MAX_VALUE) throw new IllegalStateException("Document store is full (2GB).");
+        ByteBuffer bigger = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE - 8, capacity));
+        bigger.put(0, buffer, 0, size);
+        data = bigger;
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Reusable decode target; a view of the last decoded field until the next read into it
+    static final class Text implements CharSequence {
+        private byte[] bytes = new byte[256];
+        private char[] chars = new char[256];
+        private int length;
+
+        private byte[] bytes(int capacity) {
+            if (bytes.length < capacity) bytes = new byte[Math.max(capacity, 2 * bytes.length)];
+            return bytes;
+        }
+
+        private char[] chars(int capacity) {
+            if (chars.length < capacity) chars = new char[Math.max(capacity, 2 * chars.length)];
+            return chars;
+        }
+
+        @Override
+        public int length() { return length; }
+
+        @Override
+        public char charAt(int index) {
+            if (index >= length) throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) { return new String(chars, start, end - start); }
+
+        @Override
+        public String toString() { return new String(chars, 0, length); }
+    }
+}
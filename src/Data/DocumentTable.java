@@ -0,0 +1,59 @@
+package Data;
+
+import java.util.List;
+
+/*
+ * docID -> article lookup of one snapshot, in fixed-size chunks that the following snapshots share.
+ *
+ * A new table appends past the end of the last chunk, where older tables never read, and copies a chunk
+ * before it replaces a slot an older table can see. Publishing a few changes so costs the chunk table and
+ * the chunks they touch instead of the whole document list.
+ */
+final class DocumentTable {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private final Article[][] chunks;
+    private final int size;
+
+    private DocumentTable(Article[][] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    static DocumentTable of(List<Article> documents) {
+        return new DocumentTable(new Article[0][], 0).update(documents, new int[0], 0);
+    }
+
+    // null once deleted
+    Article get(int docId) { return chunks[docId >>> CHUNK_BITS][docId & (CHUNK_SIZE - 1)]; }
+
+    int size() { return size; }
+
+    // Table over documents, which holds this table's articles with only the first changedCount docIDs of
+    // changed replaced since, plus any number appended
+    DocumentTable update(List<Article> documents, int[] changed, int changedCount) {
+        int newSize = documents.size();
+        Article[][] updated = new Article[(newSize + CHUNK_SIZE - 1) >>> CHUNK_BITS][];
+        System.arraycopy(chunks, 0, updated, 0, Math.min(chunks.length, updated.length));
+
+        boolean[] copied = new boolean[updated.length];
+        for (int i = 0; i < changedCount; i++) {
+            int docId = changed[i];
+            if (docId >= size) continue; // appended below
+            int chunk = docId >>> CHUNK_BITS;
+            if (!copied[chunk]) {
+                updated[chunk] = updated[chunk].clone();
+                copied[chunk] = true;
+            }
+            updated[chunk][docId & (CHUNK_SIZE - 1)] = documents.get(docId);
+        }
+        for (int docId = size; docId < newSize; docId++) {
+            int chunk = docId >>> CHUNK_BITS;
+            if (updated[chunk] == null) updated[chunk] = new Article[CHUNK_SIZE];
+            updated[chunk][docId & (CHUNK_SIZE - 1)] = documents.get(docId);
+        }
+        return new DocumentTable(updated, newSize);
+    }
+}
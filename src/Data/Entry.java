@@ -4,6 +4,7 @@ public class Entry<K, V> {
     public K key;
     public V value;
     public boolean isDeleted;
+    public long hash; // cached hash of the key, so probing and resizing don't rehash it
 
     public Entry(K key, V value) {
         this.key = key;
@@ -11,6 +12,11 @@ public class Entry<K, V> {
         this.isDeleted = false;
     }
 
+    public Entry(K key, V value, long hash) {
+        this(key, value);
+        this.hash = hash;
+    }
+
     public K getKey(){
         return this.key;
     }
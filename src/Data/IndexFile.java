@@ -0,0 +1,221 @@
+package Data;
+
+import HashMaps.HashMapCustom;
+import HashMaps.PerfectHashSet;
+import HashMaps.StringIntHashMap;
+import Index.FieldLengths;
+import Index.Fields;
+import Index.PostingList;
+import Index.Tokenizer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Binary snapshot of a built index.
+ *
+ *   header     : magic, version, docCount, termCount, tokenizer fingerprint, stop word fingerprint,
+ *                docStoreOffset, lengthsOffset, dictionaryOffset, postingsOffset
+ *   doc store  : per document id, headline, summary, content as (int length, UTF-8 bytes), length -1 for null
+ *   lengths    : per document the indexed token count of headline, summary and content, for BM25F
+ *   dictionary : per term (int length, UTF-8 bytes), wordFrequency, docFrequency, postingsOffset, postingsLength
+ *   postings   : the PostingList buffers back to back
+ *
+ * Reading maps the file and hands out PostingList views over the mapping, so nothing is re-tokenized.
+ * Queries are, so a file built with other delimiters or stop words than the loaded ones is refused.
+ * Articles read back keep their text in the mapping too, see DocumentStore.
+ */
+public class IndexFile {
+
+    private static final int MAGIC = 0x43494458; // "CIDX"
+    private static final int VERSION = 4; // 2: positions in the postings, 3: field lengths, 4: fingerprints
+    private static final int HEADER_SIZE = 4 * 4 + 6 * 8;
+
+    public static void write(String filename, List<Article> documents,
+                             HashMapCustom<String, PostingList> indexMap,
+                             StringIntHashMap wordFrequencyMap, FieldLengths fieldLengths,
+                             Tokenizer tokenizer, PerfectHashSet stopWords) throws IOException {
+
+        long docStoreOffset;
+        long lengthsOffset;
+        long dictionaryOffset;
+        long postingsStart;
+        int termCount;
+
+        try (FileOutputStream file = new FileOutputStream(filename);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            FileChannel channel = file.getChannel();
+            out.write(new byte[HEADER_SIZE]); // patched at the end
+
+            docStoreOffset = position(out, channel);
+            for (Article article : documents) {
+                if (article == null) { // deleted, keeps its docID slot
+                    for (int field = 0; field < 4; field++) writeString(out, null);
+                    continue;
+                }
+                if (article.getStore() != null) {
+                    article.getStore().copyRecord(article.getRecord(), out);
+                    continue;
+                }
+                writeString(out, article.getId());
+                writeString(out, article.getHeadline());
+                writeString(out, article.getSummary());
+                writeString(out, article.getContent());
+            }
+
+            lengthsOffset = position(out, channel);
+            for (int docId = 0; docId < documents.size(); docId++) {
+                boolean indexed = documents.get(docId) != null && docId < fieldLengths.getDocumentCount();
+                for (int field = 0; field < Fields.COUNT; field++) {
+                    out.writeInt(indexed ? fieldLengths.length(docId, field) : 0);
+                }
+            }
+
+            Set<Map.Entry<String, PostingList>> terms = indexMap.entrySet();
+            termCount = terms.size();
+            dictionaryOffset = position(out, channel);
+            long postingsOffset = 0;
+            for (Map.Entry<String, PostingList> term : terms) {
+                PostingList postings = term.getValue();
+                writeString(out, term.getKey());
+                out.writeInt(wordFrequencyMap.get(term.getKey(), 0));
+                out.writeInt(postings.size());
+                out.writeLong(postingsOffset);
+                out.writeInt(postings.sizeInBytes());
+                postingsOffset += postings.sizeInBytes();
+            }
+
+            postingsStart = position(out, channel);
+            for (Map.Entry<String, PostingList> term : terms) {
+                ByteBuffer data = term.getValue().getData();
+                byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                out.write(bytes);
+            }
+
+            if (position(out, channel) > Integer.MAX_VALUE) {
+                throw new IOException("Index file is larger than 2GB and can't be mapped.");
+            }
+        }
+
+        try (RandomAccessFile header = new RandomAccessFile(filename, "rw")) {
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(documents.size());
+            header.writeInt(termCount);
+            header.writeLong(tokenizer.fingerprint());
+            header.writeLong(stopWords.fingerprint());
+            header.writeLong(docStoreOffset);
+            header.writeLong(lengthsOffset);
+            header.writeLong(dictionaryOffset);
+            header.writeLong(postingsStart);
+        }
+    }
+
+    public static void read(String filename, HashMapCustom<String, Article> articleMap, List<Article> documents,
+                            HashMapCustom<String, PostingList> indexMap,
+                            StringIntHashMap wordFrequencyMap, FieldLengths fieldLengths,
+                            Tokenizer tokenizer, PerfectHashSet stopWords) throws IOException {
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException(filename + " is larger than 2GB and can't be mapped.");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != MAGIC) throw new IOException(filename + " is not an index file.");
+        int version = buffer.getInt();
+        if (version != VERSION) throw new IOException(filename + " has unsupported version " + version + ".");
+
+        int docCount = buffer.getInt();
+        int termCount = buffer.getInt();
+        if (buffer.getLong() != tokenizer.fingerprint()) {
+            throw new IOException(filename + " was indexed with other delimiters than the loaded ones.");
+        }
+        if (buffer.getLong() != stopWords.fingerprint()) {
+            throw new IOException(filename + " was indexed with other stop words than the loaded ones.");
+        }
+        articleMap.ensureCapacity(articleMap.size() + docCount);
+        indexMap.ensureCapacity(termCount);
+        wordFrequencyMap.ensureCapacity(termCount);
+        int docStoreOffset = (int) buffer.getLong();
+        int lengthsOffset = (int) buffer.getLong();
+        int dictionaryOffset = (int) buffer.getLong();
+        int postingsOffset = (int) buffer.getLong();
+
+        // Article text stays in the mapping and is decoded when a getter asks for it
+        DocumentStore store = DocumentStore.wrap(buffer.slice(docStoreOffset, lengthsOffset - docStoreOffset));
+        buffer.position(docStoreOffset);
+        for (int docId = 0; docId < docCount; docId++) {
+            int record = buffer.position() - docStoreOffset;
+            String id = readString(buffer);
+            for (int field = 0; field < 3; field++) skipString(buffer);
+            if (id == null) {
+                documents.add(null);
+                continue;
+            }
+
+            Article article = new Article(id, store, record);
+            article.setDocId(docId);
+            documents.add(article);
+            articleMap.put(id, article);
+        }
+
+        buffer.position(lengthsOffset);
+        for (int docId = 0; docId < docCount; docId++) {
+            int headline = buffer.getInt();
+            int summary = buffer.getInt();
+            int content = buffer.getInt();
+            if (documents.get(docId) != null) fieldLengths.add(docId, headline, summary, content);
+        }
+
+        buffer.position(dictionaryOffset);
+        for (int i = 0; i < termCount; i++) {
+            String term = readString(buffer);
+            int wordFrequency = buffer.getInt();
+            int docFrequency = buffer.getInt();
+            int offset = postingsOffset + (int) buffer.getLong();
+            int length = buffer.getInt();
+
+            indexMap.put(term, new PostingList(buffer.slice(offset, length), docFrequency));
+            wordFrequencyMap.put(term, wordFrequency);
+        }
+    }
+
+    // Bytes written so far. DataOutputStream.size() is an int that stops counting at Integer.MAX_VALUE.
+    private static long position(DataOutputStream out, FileChannel channel) throws IOException {
+        out.flush();
+        return channel.position();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void skipString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > 0) buffer.position(buffer.position() + length);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,110 @@
+package Data;
+
+import HashMaps.HashMapCustom;
+import HashMaps.PerfectHashSet;
+import Index.Bm25F;
+import Index.PostingList;
+import Index.TermDictionary;
+import Index.Tokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Read-only view of one built index: the documents by docID, null where deleted, the main postings, a small
+ * delta segment holding articles added since the last merge and the BM25F length statistics.
+ *
+ * All fields are final and nothing writes to them once the snapshot is built, so after ArticleLoader
+ * publishes it any number of query threads can read it without locking. Every change to the index
+ * publishes a new snapshot; searches already running keep reading the one they started with.
+ *
+ * Term dictionaries for fuzzy and wildcard lookups are built on first use only. The main one is shared
+ * by every snapshot over the same indexMap, so adding articles doesn't rebuild it; the delta segment
+ * gets a small one of its own.
+ */
+public final class IndexSnapshot {
+
+    private final DocumentTable documents; // docId -> article, null once deleted
+    private final HashMapCustom<String, PostingList> indexMap;
+    private final HashMapCustom<String, PostingList> deltaMap; // docIDs all above the ones in indexMap
+    private final Tokenizer tokenizer; // the one the postings were built with, queries must use it too
+    private final PerfectHashSet stopWords;
+    private final Bm25F bm25f;
+    private final AtomicReference<TermDictionary> dictionary; // over indexMap, shared
+    private volatile TermDictionary deltaDictionary;
+    private final long generation;
+
+    IndexSnapshot(DocumentTable documents, HashMapCustom<String, PostingList> indexMap,
+                  HashMapCustom<String, PostingList> deltaMap, Tokenizer tokenizer,
+                  PerfectHashSet stopWords, Bm25F bm25f, AtomicReference<TermDictionary> dictionary,
+                  long generation) {
+        this.documents = documents;
+        this.indexMap = indexMap;
+        this.deltaMap = deltaMap;
+        this.tokenizer = tokenizer;
+        this.stopWords = stopWords;
+        this.bm25f = bm25f;
+        this.dictionary = dictionary;
+        this.generation = generation;
+    }
+
+    // null if the term isn't in the main segment
+    public PostingList getPostings(String term) { return indexMap.get(term); }
+
+    // null if no article added since the last merge contains the term
+    public PostingList getDeltaPostings(String term) { return deltaMap.get(term); }
+
+    // Deleted docIDs stay in the posting lists until compaction
+    public boolean isDeleted(int docId) { return documents.get(docId) == null; }
+
+    public Article getArticle(int docId) { return documents.get(docId); }
+
+    public int getDocumentCount() { return documents.size(); }
+
+    public int getTermCount() { return indexMap.size(); }
+
+    public Tokenizer getTokenizer() { return tokenizer; }
+
+    public boolean isStopWord(String term) { return stopWords.contains(term); }
+
+    public Bm25F getBm25F() { return bm25f; }
+
+    // Indexed terms within maxEdits of term, best first
+    public List<String> fuzzyTerms(String term, int maxEdits, int limit) {
+        return union(getDictionary().fuzzy(term, maxEdits, limit), getDeltaDictionary().fuzzy(term, maxEdits, limit), limit);
+    }
+
+    // Indexed terms matching a '*' and '?' pattern, most frequent first
+    public List<String> wildcardTerms(String pattern, int limit) {
+        return union(getDictionary().wildcard(pattern, limit), getDeltaDictionary().wildcard(pattern, limit), limit);
+    }
+
+    private static List<String> union(List<String> main, List<String> delta, int limit) {
+        if (delta.isEmpty()) return main;
+        List<String> terms = new ArrayList<>(main);
+        for (String term : delta) {
+            if (terms.size() < limit && !terms.contains(term)) terms.add(term);
+        }
+        return terms;
+    }
+
+    // Racing builders both build one, the first stored wins
+    private TermDictionary getDictionary() {
+        TermDictionary built = dictionary.get();
+        if (built == null) {
+            dictionary.compareAndSet(null, new TermDictionary(indexMap.entrySet()));
+            built = dictionary.get();
+        }
+        return built;
+    }
+
+    private TermDictionary getDeltaDictionary() {
+        TermDictionary built = deltaDictionary;
+        if (built == null) deltaDictionary = built = new TermDictionary(deltaMap.entrySet());
+        return built;
+    }
+
+    // Query cache entries are only valid for the generation they were computed against
+    public long getGeneration() { return generation; }
+}
@@ -0,0 +1,351 @@
+package Data;
+
+import HashMaps.HashMapCustom;
+import HashMaps.StringIntHashMap;
+import Index.FieldLengths;
+import Index.Fields;
+import Index.PostingList;
+import Index.SearchResult;
+import Index.TopKHeap;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * The loaded articles hash-partitioned by article ID into independent index shards, queried by scatter-gather.
+ *
+ * Every shard is a standalone IndexSnapshot over its own articles, built on a worker of its own. A search
+ * goes to all shards in parallel; each returns its top k with docIDs mapped back to the loader's, and the
+ * coordinator merges those into the overall top k. Field bonuses only depend on the document itself and
+ * the shards score BM25F with collection-wide statistics, so the merged ranking is the one a single index
+ * over all articles gives.
+ *
+ * With sockets on, each shard answers from its own server thread behind a loopback port and the
+ * coordinator talks to it over TCP, to simulate shards on separate nodes; one shard then serves one query
+ * at a time. Shards are built from what the loader holds at build time and don't follow later updates.
+ */
+public class ShardedIndex implements Closeable {
+
+    private final Shard[] shards;
+    private final ShardServer[] servers; // null in-process
+    private final ExecutorService workers; // one per shard
+    private final long buildMillis;
+
+    private ShardedIndex(Shard[] shards, ShardServer[] servers, ExecutorService workers, long buildMillis) {
+        this.shards = shards;
+        this.servers = servers;
+        this.workers = workers;
+        this.buildMillis = buildMillis;
+    }
+
+    // Shard an article with this ID belongs to
+    public static int shardOf(String id, int shardCount) {
+        int h = id.hashCode() * 0x9E3779B9; // spread the low bits String.hashCode leaves clustered
+        return Math.floorMod(h ^ (h >>> 16), shardCount);
+    }
+
+    // Partitions and indexes the articles of the latest published snapshot
+    public static ShardedIndex build(int shardCount, boolean sockets) throws IOException {
+        if (shardCount <= 0) throw new IllegalArgumentException("Shard count must be positive.");
+
+        long start = System.nanoTime();
+        IndexSnapshot source = ArticleLoader.getSnapshot();
+        List<List<Article>> articles = new ArrayList<>();
+        for (int s = 0; s < shardCount; s++) articles.add(new ArrayList<>());
+        for (int docId = 0; docId < source.getDocumentCount(); docId++) {
+            Article article = source.getArticle(docId);
+            if (article != null) articles.get(shardOf(article.getId(), shardCount)).add(article);
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(shardCount, runnable -> {
+            Thread thread = new Thread(runnable, "shard-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Every shard is indexed on its own worker
+        List<Callable<HashMapCustom<String, PostingList>>> builds = new ArrayList<>();
+        FieldLengths[] fieldLengths = new FieldLengths[shardCount];
+        for (int s = 0; s < shardCount; s++) {
+            List<Article> shardArticles = articles.get(s);
+            FieldLengths lengths = fieldLengths[s] = new FieldLengths(shardArticles.size());
+            builds.add(() -> ArticleLoader.indexShard(shardArticles, lengths));
+        }
+        List<HashMapCustom<String, PostingList>> indexMaps = new ArrayList<>();
+        try {
+            for (Future<HashMapCustom<String, PostingList>> future : workers.invokeAll(builds)) {
+                indexMaps.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdown();
+            throw new IllegalStateException("Shard indexing interrupted.", e);
+        } catch (ExecutionException e) {
+            workers.shutdown();
+            throw new IllegalStateException("Shard indexing failed.", e.getCause());
+        }
+
+        // Collection-wide BM25F statistics, shared by every shard's scorer
+        int documentCount = 0;
+        long[] totals = new long[Fields.COUNT];
+        StringIntHashMap docFrequencies = new StringIntHashMap();
+        for (int s = 0; s < shardCount; s++) {
+            documentCount += fieldLengths[s].getLiveCount();
+            for (int field = 0; field < Fields.COUNT; field++) totals[field] += fieldLengths[s].getTotalLength(field);
+            for (Map.Entry<String, PostingList> entry : indexMaps.get(s).entrySet()) {
+                docFrequencies.addTo(entry.getKey(), entry.getValue().size());
+            }
+        }
+        float[] averageLengths = new float[Fields.COUNT];
+        for (int field = 0; field < Fields.COUNT; field++) {
+            averageLengths[field] = documentCount == 0 ? 0 : (float) totals[field] / documentCount;
+        }
+
+        Shard[] shards = new Shard[shardCount];
+        for (int s = 0; s < shardCount; s++) {
+            List<Article> shardArticles = articles.get(s);
+            IndexSnapshot snapshot = new IndexSnapshot(DocumentTable.of(shardArticles), indexMaps.get(s),
+                    new HashMapCustom<>(), ArticleLoader.getTokenizer(), ArticleLoader.getStopWords(),
+                    fieldLengths[s].scorer(documentCount, averageLengths, docFrequencies), new AtomicReference<>(), -1);
+            int[] docIds = new int[shardArticles.size()];
+            for (int i = 0; i < docIds.length; i++) docIds[i] = shardArticles.get(i).getDocId();
+            shards[s] = new Shard(snapshot, docIds);
+        }
+
+        ShardServer[] servers = null;
+        if (sockets) {
+            servers = new ShardServer[shardCount];
+            try {
+                for (int s = 0; s < shardCount; s++) servers[s] = new ShardServer(shards[s], s);
+            } catch (IOException e) {
+                for (ShardServer server : servers) if (server != null) server.close();
+                workers.shutdown();
+                throw e;
+            }
+        }
+
+        long millis = (System.nanoTime() - start) / 1000000;
+        return new ShardedIndex(shards, servers, workers, millis);
+    }
+
+    // Ranks the k best articles over all shards into result, like ArticleLoader.search does over one index;
+    // docIDs are the loader's. Safe to call from many threads with a SearchResult each.
+    public SearchResult search(String query, int k, SearchResult result) {
+        long start = System.nanoTime();
+        result.reset(query);
+
+        List<Callable<Hits>> scatter = new ArrayList<>(shards.length);
+        for (int s = 0; s < shards.length; s++) {
+            int shard = s;
+            scatter.add(() -> servers != null ? servers[shard].query(query, k) : shards[shard].search(query, k));
+        }
+
+        List<Hits> gathered = new ArrayList<>(shards.length);
+        try {
+            for (Future<Hits> future : workers.invokeAll(scatter)) gathered.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Shard search interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Shard search failed.", e.getCause());
+        }
+        long merging = System.nanoTime();
+
+        int totalHits = 0;
+        int maxScore = 0;
+        long normalizeNanos = 0, postingsNanos = 0, scoreNanos = 0;
+        for (Hits hits : gathered) {
+            if (hits.emptyQuery) result.setEmptyQuery(true);
+            totalHits += hits.totalHits;
+            maxScore = Math.max(maxScore, hits.maxScore);
+            // The slowest shard is what the query waited for
+            normalizeNanos = Math.max(normalizeNanos, hits.normalizeNanos);
+            postingsNanos = Math.max(postingsNanos, hits.postingsNanos);
+            scoreNanos = Math.max(scoreNanos, hits.scoreNanos);
+        }
+
+        result.setHits(merge(gathered, k), totalHits);
+        result.setMaxScore(maxScore);
+        long end = System.nanoTime();
+        result.setTimings(normalizeNanos, postingsNanos, scoreNanos, end - merging, end - start);
+        return result;
+    }
+
+    // Shards rank by the same packed longs with the loader's docIDs, so merging is picking the largest
+    private static long[] merge(List<Hits> gathered, int k) {
+        int count = 0;
+        for (Hits hits : gathered) count += hits.ranked.length;
+
+        if (k <= 0 || k >= count) {
+            long[] merged = new long[count];
+            int next = 0;
+            for (Hits hits : gathered) {
+                System.arraycopy(hits.ranked, 0, merged, next, hits.ranked.length);
+                next += hits.ranked.length;
+            }
+            Arrays.sort(merged);
+            for (int i = 0, j = merged.length - 1; i < j; i++, j--) {
+                long swap = merged[i];
+                merged[i] = merged[j];
+                merged[j] = swap;
+            }
+            return merged;
+        }
+
+        TopKHeap topK = new TopKHeap(k);
+        for (Hits hits : gathered) {
+            for (long hit : hits.ranked) {
+                if (topK.isFull() && hit <= topK.min()) break; // each shard's hits come best first
+                topK.offer(hit);
+            }
+        }
+        return topK.drainDescending();
+    }
+
+    public int getShardCount() { return shards.length; }
+
+    public int getShardSize(int shard) { return shards[shard].snapshot.getDocumentCount(); }
+
+    public boolean usesSockets() { return servers != null; }
+
+    public long getBuildMillis() { return buildMillis; }
+
+    @Override
+    public void close() {
+        if (servers != null) {
+            for (ShardServer server : servers) server.close();
+        }
+        workers.shutdown();
+    }
+
+    // One shard's answer: its top k packed with the loader's docIDs, best first
+    private static class Hits {
+        boolean emptyQuery;
+        int totalHits;
+        int maxScore;
+        long normalizeNanos;
+        long postingsNanos;
+        long scoreNanos;
+        long[] ranked;
+    }
+
+    private static class Shard {
+        private final IndexSnapshot snapshot;
+        private final int[] docIds; // shard docID -> loader docID, ascending like the shard's own
+
+        Shard(IndexSnapshot snapshot, int[] docIds) {
+            this.snapshot = snapshot;
+            this.docIds = docIds;
+        }
+
+        Hits search(String query, int k) {
+            SearchResult local = ArticleLoader.search(snapshot, query, k, new SearchResult());
+            Hits hits = new Hits();
+            hits.emptyQuery = local.isEmptyQuery();
+            hits.totalHits = local.getTotalHits();
+            hits.maxScore = local.getMaxScore();
+            hits.normalizeNanos = local.getNormalizeNanos();
+            hits.postingsNanos = local.getPostingsNanos();
+            hits.scoreNanos = local.getScoreNanos();
+            hits.ranked = new long[local.size()];
+            for (int rank = 0; rank < local.size(); rank++) {
+                hits.ranked[rank] = ((long) local.getScore(rank) << 32) | (Integer.MAX_VALUE - docIds[local.getDocId(rank)]);
+            }
+            return hits;
+        }
+    }
+
+    /*
+     * A shard behind a loopback port, plus the coordinator's connection to it.
+     *
+     *   request  : query (writeUTF), k
+     *   response : emptyQuery, totalHits, maxScore, normalize/postings/score nanos, hit count, packed hits
+     */
+    private static class ShardServer {
+        private final ServerSocket serverSocket;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        ShardServer(Shard shard, int number) throws IOException {
+            this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread acceptor = new Thread(() -> serve(shard), "shard-" + number + "-server");
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            this.socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        // Answers every connection in turn until the server socket is closed
+        private void serve(Shard shard) {
+            while (!serverSocket.isClosed()) {
+                try (Socket connection = serverSocket.accept()) {
+                    connection.setTcpNoDelay(true);
+                    DataInputStream request = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+                    DataOutputStream response = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                    while (true) {
+                        String query;
+                        try {
+                            query = request.readUTF();
+                        } catch (EOFException e) {
+                            break; // coordinator hung up
+                        }
+                        write(shard.search(query, request.readInt()), response);
+                    }
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) System.err.println("ERROR: Shard server failed: " + e.getMessage());
+                }
+            }
+        }
+
+        private static void write(Hits hits, DataOutputStream response) throws IOException {
+            response.writeBoolean(hits.emptyQuery);
+            response.writeInt(hits.totalHits);
+            response.writeInt(hits.maxScore);
+            response.writeLong(hits.normalizeNanos);
+            response.writeLong(hits.postingsNanos);
+            response.writeLong(hits.scoreNanos);
+            response.writeInt(hits.ranked.length);
+            for (long hit : hits.ranked) response.writeLong(hit);
+            response.flush();
+        }
+
+        // One connection, so queries to this shard take turns
+        synchronized Hits query(String query, int k) throws IOException {
+            out.writeUTF(query);
+            out.writeInt(k);
+            out.flush();
+
+            Hits hits = new Hits();
+            hits.emptyQuery = in.readBoolean();
+            hits.totalHits = in.readInt();
+            hits.maxScore = in.readInt();
+            hits.normalizeNanos = in.readLong();
+            hits.postingsNanos = in.readLong();
+            hits.scoreNanos = in.readLong();
+            hits.ranked = new long[in.readInt()];
+            for (int i = 0; i < hits.ranked.length; i++) hits.ranked[i] = in.readLong();
+            return hits;
+        }
+
+        void close() {
+            try {
+                socket.close();
+                serverSocket.close();
+            } catch (IOException e) {
+                System.err.println("ERROR: Shard server can't be closed: " + e.getMessage());
+            }
+        }
+    }
+}
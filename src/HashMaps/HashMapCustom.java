@@ -6,13 +6,16 @@ import java.util.*;
 
 public class HashMapCustom<K,V> {
 
-    public enum HashFunctionType {SSF, PAF}
+    // SSF: sum of chars, PAF: polynomial with z=33, FNV1A: 64-bit FNV-1a, MURMUR3: MurmurHash3 x86_32,
+    // WYHASH: wyhash-style multiply-fold, JAVA_MIX: String.hashCode() through the Murmur3 64-bit finalizer
+    public enum HashFunctionType {SSF, PAF, FNV1A, MURMUR3, WYHASH, JAVA_MIX}
 
-    public enum CollisionType {LINEAR_PROBING, DOUBLE_HASHING}
+    // ROBIN_HOOD is linear probing that displaces entries sitting closer to their home slot than the one being
+    // inserted, and deletes by shifting back instead of leaving tombstones. The primitive maps probe it linearly.
+    public enum CollisionType {LINEAR_PROBING, DOUBLE_HASHING, ROBIN_HOOD}
 
     private static final int DEFAULT_INITIAL_CAPACITY = 101;
     private static final double DEFAULT_LOAD_FACTOR = 0.5;
-    private static final int PAF_Z = 33;
 
     private static class InternalEntry<K,V> {
         K key; V value; boolean isDeleted;
@@ -21,37 +24,109 @@ public class HashMapCustom<K,V> {
 
     private Entry<K,V>[] table;
     private int size;
+    private int tombstones; // removed entries still occupying a slot
 
     private double loadFactor;
     private HashFunctionType hashFunctionType;
     private CollisionType collisionType;
     private long collisionCount;
+    private int resizeCount; // rehashes into a new table, same-capacity tombstone cleanups included
     private int currentCapacityPrime;
+    private int secondaryPrime; // q for double hashing, recomputed only on resize
+    private final int minCapacity; // never shrink below the initial capacity
 
     public HashMapCustom(int initialCapacity, double loadFactor,
                          HashFunctionType hashFunctionType, CollisionType collisionType) {
 
-        this.currentCapacityPrime = nextPrime(Math.max(3, initialCapacity));
+        if (loadFactor <= 0 || loadFactor >= 1) {
+            throw new IllegalArgumentException("Load factor must be between 0 and 1 (exclusive): " + loadFactor);
+        }
+        this.currentCapacityPrime = Hashing.nextPrime(Math.max(3, initialCapacity));
+        this.secondaryPrime = Hashing.prevPrime(this.currentCapacityPrime - 1);
         this.table = (Entry<K, V>[]) new Entry[this.currentCapacityPrime];
         this.size = 0;
         this.loadFactor = loadFactor;
         this.hashFunctionType = hashFunctionType;
         this.collisionType = collisionType;
         this.collisionCount = 0;
+        this.minCapacity = this.currentCapacityPrime;
     }
 
     public HashMapCustom() {
         this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, HashFunctionType.PAF, CollisionType.LINEAR_PROBING);
     }
 
+    // Map whose first table already holds expectedSize entries at the load factor, for builds that know
+    // their size: filling it never resizes
+    public static <K, V> HashMapCustom<K, V> withExpectedSize(int expectedSize, double loadFactor,
+                                                             HashFunctionType hashFunctionType, CollisionType collisionType) {
+        return new HashMapCustom<>(Hashing.capacityFor(expectedSize, loadFactor), loadFactor, hashFunctionType, collisionType);
+    }
+
+    // New empty map with this one's initial capacity, load factor, hash function and collision type
+    public HashMapCustom<K, V> emptyCopy() {
+        return new HashMapCustom<>(minCapacity, loadFactor, hashFunctionType, collisionType);
+    }
+
     public long getCollisionCount() {
         return collisionCount;
     }
 
+    public int getResizeCount() {
+        return resizeCount;
+    }
+
     public int size() {
         return size;
     }
 
+    public int getTombstoneCount() {
+        return tombstones;
+    }
+
+    // Average number of slots a successful get visits, 1.0 when every entry sits in its home slot
+    public double getMeanProbeLength() {
+        if (size == 0) return 0;
+        long total = 0;
+        for (int i = 0; i < table.length; i++) {
+            Entry<K, V> e = table[i];
+            if (e != null && !e.isDeleted) total += probeLength(i, e);
+        }
+        return (double) total / size;
+    }
+
+    public int getMaxProbeLength() {
+        int max = 0;
+        for (int i = 0; i < table.length; i++) {
+            Entry<K, V> e = table[i];
+            if (e != null && !e.isDeleted) max = Math.max(max, probeLength(i, e));
+        }
+        return max;
+    }
+
+    // histogram[L] = number of live entries a get finds after visiting L slots
+    public int[] getProbeLengthHistogram() {
+        int[] histogram = new int[getMaxProbeLength() + 1];
+        for (int i = 0; i < table.length; i++) {
+            Entry<K, V> e = table[i];
+            if (e != null && !e.isDeleted) histogram[probeLength(i, e)]++;
+        }
+        return histogram;
+    }
+
+    // Variance of the number of live keys per home slot. A uniform hash gives roughly the load itself
+    // (Poisson), a clustering one like SSF gives far more.
+    public double getBucketOccupancyVariance() {
+        int[] occupancy = new int[table.length];
+        for (Entry<K, V> e : table) {
+            if (e != null && !e.isDeleted) occupancy[Hashing.homeSlot(e.hash, table.length)]++;
+        }
+        double mean = (double) size / table.length;
+        double sumSquares = 0;
+        for (int count : occupancy) sumSquares += (count - mean) * (count - mean);
+        return sumSquares / table.length;
+    }
+
     public boolean isEmpty() {
         return size == 0;
     }
@@ -61,8 +136,9 @@ public class HashMapCustom<K,V> {
     }
 
 
+    // Lookups never write to the map, so a map nobody modifies any more can be read from many threads
     public V get(K key) {
-        int index = findSlotIndex(key, false); // false -> don't insert, just find
+        int index = findSlotIndex(key, computeHash(key), false); // false -> don't insert, just find
         if (index == -1) return null;
         Entry<K, V> e = table[index];
         if (e != null && !e.isDeleted) return e.value;
@@ -71,17 +147,28 @@ public class HashMapCustom<K,V> {
 
     public V put(K key, V value) {
         if (key == null) throw new IllegalArgumentException("Key must not be null.");
-        if ((double) (size + 1) / table.length > loadFactor) {
-            resize(nextPrime(table.length * 2));
+        ensureCapacityForInsert();
+
+        long hash = computeHash(key);
+        if (collisionType == CollisionType.ROBIN_HOOD) {
+            int index = findSlotIndex(key, hash, false);
+            if (index == -1) {
+                robinHoodInsert(new Entry<>(key, value, hash), true);
+                return null;
+            }
+            V old = table[index].value;
+            table[index].value = value;
+            return old;
         }
 
-        int index = findSlotIndex(key, true); // true -> find or insert position
+        int index = findSlotIndex(key, hash, true); // true -> find or insert position
         if (index == -1) throw new IllegalStateException("Failed to find slot for insertion.");
 
         Entry<K, V> slot = table[index];
 
         if (slot == null || slot.isDeleted) {
-            table[index] = new Entry<>(key, value);
+            if (slot != null) tombstones--;
+            table[index] = new Entry<>(key, value, hash);
             size++;
             return null;
         } else {
@@ -92,8 +179,21 @@ public class HashMapCustom<K,V> {
         }
     }
 
+    // Bulk insert: the table is sized for every entry up front, so the puts rehash at most once instead of
+    // at every doubling on the way
+    public void putAll(Collection<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        ensureCapacity(size + entries.size());
+        for (Map.Entry<? extends K, ? extends V> entry : entries) put(entry.getKey(), entry.getValue());
+    }
+
+    // Grows the table once, if needed, so that expectedSize live entries fit without another resize
+    public void ensureCapacity(int expectedSize) {
+        if ((double) (expectedSize + tombstones) / table.length <= loadFactor) return;
+        resize(Math.max(table.length, Hashing.capacityFor(expectedSize, loadFactor)));
+    }
+
     public V remove(K key) {
-        int index = findSlotIndex(key, false);
+        int index = findSlotIndex(key, computeHash(key), false);
         if (index == -1)
             return null;
 
@@ -103,11 +203,28 @@ public class HashMapCustom<K,V> {
             return null;
 
         V old = e.value;
-        e.isDeleted = true;
+        if (collisionType == CollisionType.ROBIN_HOOD) {
+            robinHoodShiftBack(index);
+        } else {
+            e.isDeleted = true;
+            tombstones++;
+        }
         size--;
+
+        // Shrink once the map is mostly empty, otherwise rehash in place once tombstones outnumber live entries
+        if (table.length > minCapacity && size < table.length * loadFactor / 4) {
+            resize(Math.max(minCapacity, table.length / 2));
+        } else if (tombstones > size && tombstones > table.length * loadFactor / 2) {
+            resize(table.length);
+        }
         return old;
     }
 
+    // Rehashes the live entries into a fresh table of the same capacity, dropping every tombstone
+    public void compact() {
+        if (tombstones > 0) resize(table.length);
+    }
+
     public Set<Map.Entry<K, V>> entrySet() {
         Set<Map.Entry<K, V>> result = new HashSet<>();
         for (Entry<K,V> e : table) {
@@ -123,197 +240,174 @@ public class HashMapCustom<K,V> {
         return (value != null) ? value : defaultValue;
     }
 
-    private int findSlotIndex(K key, boolean forInsert) {
-        long hash = computeHash(key);
+    private int findSlotIndex(K key, long hash, boolean forInsert) {
         int N = table.length;
-        int hash1 = (int) (Math.abs(hash) % N);
-
-        if (collisionType == CollisionType.LINEAR_PROBING) {
-            int firstDeletedIndex = -1;
-            for (int j = 0; j < N; j++) {
-                int idx = (hash1 + j) % N;
-                Entry<K, V> e = table[idx];
-                if (e == null) {
-                    // empty slot
-                    if (forInsert) {
-                        return (firstDeletedIndex != -1) ? firstDeletedIndex : idx;
-                    } else {
-                        return -1;
-                    }
-                } else if (e.isDeleted) {
-                    if (forInsert && firstDeletedIndex == -1) firstDeletedIndex = idx;
-                } else if (Objects.equals(e.key, key)) {
-                    return idx;
+        int idx = Hashing.homeSlot(hash, N);
+
+        // LINEAR_PROBING walks one slot at a time, DOUBLE_HASHING jumps by h2 = q - (hash % q), q < N prime
+        int step = (collisionType == CollisionType.DOUBLE_HASHING) ? Hashing.step(hash, secondaryPrime) : 1;
+        boolean robinHood = collisionType == CollisionType.ROBIN_HOOD;
+
+        int firstDeletedIndex = -1;
+        for (int j = 0; j < N; j++) {
+            Entry<K, V> e = table[idx];
+            if (e == null) {
+                // empty slot
+                if (forInsert) {
+                    return (firstDeletedIndex != -1) ? firstDeletedIndex : idx;
                 } else {
-                    if (forInsert)
-                        collisionCount++;
+                    return -1;
                 }
+            } else if (e.isDeleted) {
+                if (forInsert && firstDeletedIndex == -1) firstDeletedIndex = idx;
+            } else if (e.hash == hash && Objects.equals(e.key, key)) {
+                return idx;
+            } else if (robinHood && probeDistance(idx, e) < j) {
+                return -1; // the key would have displaced this entry, so it isn't in the table
+            } else {
+                if (forInsert)
+                    collisionCount++;
             }
-            return -1; // table full or not found
-        }
-
-        else if (collisionType == CollisionType.DOUBLE_HASHING) { // DOUBLE_HASHING
-            // select q < N, q prime
 
-            int q = prevPrime(N - 1);
-
-            int h2 = (int) (q - Math.abs(hash % q));
-
-            if (h2 == 0) h2 = 1; // ensure non-zero
-
-            int firstDeletedIndex = -1;
-
-            for (int j = 0; j < N; j++) {
-                int idx = (hash1 + j * h2) % N;
-                Entry<K, V> e = table[idx];
-                if (e == null) {
-                    if (forInsert) {
-                        return (firstDeletedIndex != -1) ? firstDeletedIndex : idx;
-                    } else {
-                        return -1;
-                    }
-                } else if (e.isDeleted) {
-                    if (forInsert && firstDeletedIndex == -1) firstDeletedIndex = idx;
-                } else if (Objects.equals(e.key, key)) {
-                    return idx;
-                } else {
-                    if (forInsert)
-                        collisionCount++;
-                }
-            }
-            return -1;
+            idx += step; // step < N, so a single subtraction replaces % N
+            if (idx >= N) idx -= N;
         }
-        return -9999;
+        // Unreachable for inserts: the load check keeps live entries plus tombstones below the capacity
+        return (forInsert && firstDeletedIndex != -1) ? firstDeletedIndex : -1;
+    }
 
+    // Live entries and tombstones both lengthen probe chains, so both count against the load factor
+    private void ensureCapacityForInsert() {
+        if ((double) (size + tombstones + 1) / table.length <= loadFactor) return;
+
+        if (tombstones > size) resize(table.length); // dropping the tombstones frees enough room
+        else resize(Hashing.nextPrime(table.length * 2));
     }
 
     private void resize(int newCapacity) {
-        int newCapPrime = nextPrime(newCapacity);
+        int newCapPrime = Hashing.nextPrime(newCapacity);
         Entry<K, V>[] oldTable = table;
 
         table = (Entry<K, V>[]) new Entry[newCapPrime];
+        resizeCount++;
 
-        int oldSize = size;
         size = 0;
+        tombstones = 0;
         currentCapacityPrime = newCapPrime;
+        secondaryPrime = Hashing.prevPrime(newCapPrime - 1);
 
-        // rehash active entries
+        // rehash active entries with their cached hashes
         for (Entry<K, V> e : oldTable) {
             if (e != null && !e.isDeleted) {
                 // put without triggering another resize check to avoid infinite recursion
-                rehashPut(e.key, e.value);
+                rehashPut(e);
             }
         }
     }
 
-    private void rehashPut(K key, V value) {
-        long h = computeHash(key);
+    private void rehashPut(Entry<K, V> entry) {
+        if (collisionType == CollisionType.ROBIN_HOOD) {
+            robinHoodInsert(entry, false);
+            return;
+        }
+
         int N = table.length;
-        int h1 = (int) (Math.abs(h) % N);
-
-        if (collisionType == CollisionType.LINEAR_PROBING) {
-            for (int j = 0; j < N; j++) {
-                int idx = (h1 + j) % N;
-                Entry<K, V> e = table[idx];
-                if (e == null || e.isDeleted) {
-                    table[idx] = new Entry<>(key, value);
-                    size++;
-                    return;
-                }
-            }
-        } else {
-            int q = prevPrime(N - 1);
-            int h2 = (int) (q - Math.abs(h % q));
-            if (h2 == 0) h2 = 1;
-            for (int j = 0; j < N; j++) {
-                int idx = (h1 + j * h2) % N;
-                Entry<K, V> e = table[idx];
-                if (e == null || e.isDeleted) {
-                    table[idx] = new Entry<>(key, value);
-                    size++;
-                    return;
-                }
+        int idx = Hashing.homeSlot(entry.hash, N);
+        int step = (collisionType == CollisionType.DOUBLE_HASHING) ? Hashing.step(entry.hash, secondaryPrime) : 1;
+
+        for (int j = 0; j < N; j++) {
+            if (table[idx] == null) {
+                table[idx] = entry;
+                size++;
+                return;
             }
+            idx += step;
+            if (idx >= N) idx -= N;
         }
 
         throw new IllegalStateException("Rehash failed: table appears to be full.");
     }
 
-    private long computeHash(K key) {
-        String s = key.toString().toLowerCase();
-        if (hashFunctionType == HashFunctionType.SSF) {
-            long sum = 0;
-            for (int i = 0; i < s.length(); i++) {
-                sum += (int) s.charAt(i);
+    // Places an entry whose key is known to be absent. Whenever the resident entry is closer to its home slot
+    // than the one being carried, they swap, which keeps probe lengths even across the table.
+    private void robinHoodInsert(Entry<K, V> entry, boolean countCollisions) {
+        int N = table.length;
+        int idx = Hashing.homeSlot(entry.hash, N);
+        int distance = 0;
+
+        for (int j = 0; j < N; j++) {
+            Entry<K, V> e = table[idx];
+            if (e == null) {
+                table[idx] = entry;
+                size++;
+                return;
             }
-            return sum;
-        }
-        else if (hashFunctionType == HashFunctionType.PAF) {
-            long h = 0;
-            for (int i = 0; i < s.length(); i++) {
-                char ch = s.charAt(i);
-                int val;
-                if (ch >= 'a' && ch <= 'z')
-                    val = ch - 'a' + 1;
-                else
-                    val = (int) ch; // use raw char value for non-letter
-
-                h = h * PAF_Z + val; // may overflow long; acceptable per assignment
+            if (countCollisions) collisionCount++;
+
+            int residentDistance = probeDistance(idx, e);
+            if (residentDistance < distance) {
+                table[idx] = entry;
+                entry = e;
+                distance = residentDistance;
+                countCollisions = false; // the new key is placed, the rest is bookkeeping
             }
-            return h;
-        }
-        return 0000001;
-    }
 
-    /* -----------PRIME CHECKERS------------- */
-
-    private static boolean isPrime(int n) {
-        if (n <= 1)
-            return false;
-        if (n <= 3)
-            return true;
-        if (n % 2 == 0)
-            return false;
-
-        int r = (int) Math.sqrt(n);
-
-        for (int i = 3; i <= r; i += 2) {
-            if (n % i == 0)
-                return false;
+            distance++;
+            if (++idx == N) idx = 0;
         }
-        return true;
-    }
 
-    private static int nextPrime(int n) {
-        if (n <= 2) return 2;
-        int candidate = (n % 2 == 0) ? n + 1 : n;
+        throw new IllegalStateException("Robin Hood insert failed: table appears to be full.");
+    }
 
-        while (!isPrime(candidate)){
-            candidate += 2;
+    // Backward-shift deletion: pull the following displaced entries one slot closer to home
+    private void robinHoodShiftBack(int idx) {
+        int N = table.length;
+        int next = idx + 1 == N ? 0 : idx + 1;
+        while (table[next] != null && probeDistance(next, table[next]) > 0) {
+            table[idx] = table[next];
+            idx = next;
+            next = idx + 1 == N ? 0 : idx + 1;
         }
-
-        return candidate;
+        table[idx] = null;
     }
 
-    private static int prevPrime(int n) {
-        if (n <= 2) return 2;
+    // Slots between the entry's home slot and where it sits, for the linear layouts
+    private int probeDistance(int idx, Entry<K, V> e) {
+        int distance = idx - Hashing.homeSlot(e.hash, table.length);
+        return distance < 0 ? distance + table.length : distance;
+    }
 
-        int candidate = (n % 2 == 0) ? n - 1 : n;
+    private int probeLength(int idx, Entry<K, V> e) {
+        if (collisionType != CollisionType.DOUBLE_HASHING) return probeDistance(idx, e) + 1;
 
-        while (candidate >= 2 && !isPrime(candidate)) {
-            candidate -= 2;
+        int N = table.length;
+        int slot = Hashing.homeSlot(e.hash, N);
+        int step = Hashing.step(e.hash, secondaryPrime);
+        int length = 1;
+        while (slot != idx) {
+            slot += step;
+            if (slot >= N) slot -= N;
+            length++;
         }
+        return length;
+    }
 
-        if (candidate < 2)
-            return 2;
-
-        return candidate;
+    // Hashes the key's characters without building a lowercased copy of key.toString()
+    private long computeHash(K key) {
+        if (key instanceof CharSequence) {
+            return Hashing.hash((CharSequence) key, hashFunctionType);
+        }
+        if (key instanceof Integer) {
+            return Hashing.hash(((Integer) key).intValue(), hashFunctionType);
+        }
+        return Hashing.hash(key.toString(), hashFunctionType);
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("HashMaps.HashMapCustom(size=").append(size).append(", capacity=").append(table.length)
+                .append(", tombstones=").append(tombstones)
                 .append(", collisions=").append(collisionCount).append(")\n");
         for (int i = 0; i < table.length; i++) {
             Entry<K, V> e = table[i];
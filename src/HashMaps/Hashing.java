@@ -0,0 +1,240 @@
+package HashMaps;
+
+/*
+ * Hash functions and prime helpers shared by the hash maps.
+ *
+ * String hashes lowercase one char at a time instead of calling toLowerCase(), so hashing a key never
+ * allocates. JAVA_MIX is the exception: it starts from String.hashCode(), which String caches, and is
+ * therefore case-sensitive. SSF and PAF hash int keys over their decimal digits, which gives the same
+ * value HashMapCustom computes from Integer.toString(); the other functions mix the int directly.
+ */
+final class Hashing {
+
+    static final int PAF_Z = 33;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int MURMUR_C1 = 0xcc9e2d51;
+    private static final int MURMUR_C2 = 0x1b873593;
+
+    private static final long WY_SECRET0 = 0xa0761d6478bd642fL;
+    private static final long WY_SECRET1 = 0xe7037ed1a0b428dbL;
+    private static final long WY_SECRET2 = 0x8ebc6af09c88c6e3L;
+
+    private Hashing() { }
+
+    static long hash(CharSequence s, HashMapCustom.HashFunctionType type) {
+        switch (type) {
+            case SSF: return sumHash(s);
+            case FNV1A: return fnv1a(s);
+            case MURMUR3: return murmur3(s);
+            case WYHASH: return wyhash(s);
+            case JAVA_MIX: return mix64(s instanceof String ? s.hashCode() : javaHashCode(s));
+            default: return polynomialHash(s);
+        }
+    }
+
+    private static long sumHash(CharSequence s) {
+        long sum = 0;
+        for (int i = 0; i < s.length(); i++) {
+            sum += Character.toLowerCase(s.charAt(i));
+        }
+        return sum;
+    }
+
+    private static long polynomialHash(CharSequence s) {
+        long h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            h = h * PAF_Z + charValue(Character.toLowerCase(s.charAt(i)));
+        }
+        return h;
+    }
+
+    // 64-bit FNV-1a over the UTF-16LE bytes of the lowercased chars
+    private static long fnv1a(CharSequence s) {
+        long h = FNV_OFFSET_BASIS;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = Character.toLowerCase(s.charAt(i));
+            h = (h ^ (ch & 0xFF)) * FNV_PRIME;
+            h = (h ^ (ch >>> 8)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    // MurmurHash3 x86_32 (seed 0) over the UTF-16LE bytes of the lowercased chars, two chars per block
+    private static long murmur3(CharSequence s) {
+        int length = s.length();
+        int h1 = 0;
+        int i = 1;
+        for (; i < length; i += 2) {
+            int k1 = Character.toLowerCase(s.charAt(i - 1)) | (Character.toLowerCase(s.charAt(i)) << 16);
+            h1 = murmurMixH1(h1, murmurMixK1(k1));
+        }
+        if ((length & 1) == 1) {
+            h1 ^= murmurMixK1(Character.toLowerCase(s.charAt(length - 1)));
+        }
+        return murmurFinalize(h1, 2 * length) & 0xFFFFFFFFL;
+    }
+
+    // wyhash's mixing (64x64 -> 128-bit multiply folded to 64 bits) over four chars per block.
+    // Not bit-compatible with the reference implementation, which reads raw bytes in 8-byte lanes.
+    private static long wyhash(CharSequence s) {
+        int length = s.length();
+        long seed = WY_SECRET0;
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            long block = Character.toLowerCase(s.charAt(i))
+                    | (long) Character.toLowerCase(s.charAt(i + 1)) << 16
+                    | (long) Character.toLowerCase(s.charAt(i + 2)) << 32
+                    | (long) Character.toLowerCase(s.charAt(i + 3)) << 48;
+            seed = wymix(block ^ WY_SECRET1, seed);
+        }
+        long tail = 0;
+        for (int shift = 0; i < length; i++, shift += 16) {
+            tail |= (long) Character.toLowerCase(s.charAt(i)) << shift;
+        }
+        return wymix(WY_SECRET1 ^ length, wymix(tail ^ WY_SECRET2, seed));
+    }
+
+    // Same value as String.hashCode(), for CharSequences that don't cache one
+    private static int javaHashCode(CharSequence s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h;
+    }
+
+    private static int murmurMixK1(int k1) {
+        return Integer.rotateLeft(k1 * MURMUR_C1, 15) * MURMUR_C2;
+    }
+
+    private static int murmurMixH1(int h1, int k1) {
+        return Integer.rotateLeft(h1 ^ k1, 13) * 5 + 0xe6546b64;
+    }
+
+    private static int murmurFinalize(int h1, int byteLength) {
+        h1 ^= byteLength;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        return h1 ^ (h1 >>> 16);
+    }
+
+    // Low 64 bits xor high 64 bits of the unsigned 128-bit product
+    private static long wymix(long a, long b) {
+        long high = Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+        return high ^ (a * b);
+    }
+
+    // MurmurHash3's 64-bit finalizer: spreads every input bit over the whole word
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    static long hash(int key, HashMapCustom.HashFunctionType type) {
+        switch (type) {
+            case FNV1A:
+                long h = FNV_OFFSET_BASIS;
+                for (int shift = 0; shift < 32; shift += 8) h = (h ^ ((key >>> shift) & 0xFF)) * FNV_PRIME;
+                return h;
+            case MURMUR3: return murmurFinalize(murmurMixH1(0, murmurMixK1(key)), 4) & 0xFFFFFFFFL;
+            case WYHASH: return wymix(WY_SECRET1 ^ 4, wymix(key ^ WY_SECRET2, WY_SECRET0));
+            case JAVA_MIX: return mix64(key);
+            default: return decimalHash(key, type);
+        }
+    }
+
+    private static long decimalHash(int key, HashMapCustom.HashFunctionType type) {
+        long h = 0;
+        long magnitude = key;
+        if (magnitude < 0) {
+            h = type == HashMapCustom.HashFunctionType.SSF ? '-' : charValue('-');
+            magnitude = -magnitude;
+        }
+
+        long divisor = 1;
+        while (divisor <= magnitude / 10) divisor *= 10;
+
+        for (; divisor > 0; divisor /= 10) {
+            char digit = (char) ('0' + (magnitude / divisor) % 10);
+            if (type == HashMapCustom.HashFunctionType.SSF) h += digit;
+            else h = h * PAF_Z + charValue(digit);
+        }
+        return h;
+    }
+
+    // PAF letter values: a=1 ... z=26, raw char value for anything else
+    private static int charValue(char ch) {
+        if (ch >= 'a' && ch <= 'z') return ch - 'a' + 1;
+        return ch;
+    }
+
+    // Home slot for a hash, same as Math.abs(hash) % n but safe for Long.MIN_VALUE
+    static int homeSlot(long hash, int n) {
+        long positive = hash < 0 ? -hash : hash;
+        if (positive < 0) positive = Long.MAX_VALUE;
+        return (int) (positive % n);
+    }
+
+    // Double hashing step in [1, q]
+    static int step(long hash, int q) {
+        long remainder = hash % q;
+        int h2 = (int) (q - (remainder < 0 ? -remainder : remainder));
+        return h2 == 0 ? 1 : h2;
+    }
+
+    // Smallest table size that keeps expectedSize entries at or under the load factor
+    static int capacityFor(int expectedSize, double loadFactor) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, (long) Math.ceil(Math.max(0, expectedSize) / loadFactor) + 1);
+    }
+
+    /* -----------PRIME CHECKERS------------- */
+
+    static boolean isPrime(int n) {
+        if (n <= 1)
+            return false;
+        if (n <= 3)
+            return true;
+        if (n % 2 == 0)
+            return false;
+
+        int r = (int) Math.sqrt(n);
+
+        for (int i = 3; i <= r; i += 2) {
+            if (n % i == 0)
+                return false;
+        }
+        return true;
+    }
+
+    static int nextPrime(int n) {
+        if (n <= 2) return 2;
+        int candidate = (n % 2 == 0) ? n + 1 : n;
+
+        while (!isPrime(candidate)){
+            candidate += 2;
+        }
+
+        return candidate;
+    }
+
+    static int prevPrime(int n) {
+        if (n <= 2) return 2;
+
+        int candidate = (n % 2 == 0) ? n - 1 : n;
+
+        while (candidate >= 2 && !isPrime(candidate)) {
+            candidate -= 2;
+        }
+
+        if (candidate < 2)
+            return 2;
+
+        return candidate;
+    }
+}
@@ -0,0 +1,180 @@
+package HashMaps;
+
+import java.util.Arrays;
+
+/*
+ * Open-addressing int -> int map with parallel key/value arrays.
+ *
+ * Same hash function and collision options as HashMapCustom, but values are stored unboxed and there is
+ * no Entry object per slot, so put/get/addTo on an existing key never allocate.
+ */
+public class IntIntHashMap {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 101;
+    private static final double DEFAULT_LOAD_FACTOR = 0.5;
+    private static final int NO_SLOT = Integer.MIN_VALUE;
+
+    private static final byte EMPTY = 0;
+    private static final byte FULL = 1;
+    private static final byte DELETED = 2; // tombstone
+
+    private int[] keys;
+    private int[] values;
+    private byte[] states;
+    private int size;
+    private int tombstones; // removed entries still occupying a slot
+    private int secondaryPrime; // q for double hashing, recomputed only on resize
+
+    private final double loadFactor;
+    private final HashMapCustom.HashFunctionType hashFunctionType;
+    private final HashMapCustom.CollisionType collisionType;
+    private long collisionCount;
+
+    public IntIntHashMap(int initialCapacity, double loadFactor,
+                            HashMapCustom.HashFunctionType hashFunctionType, HashMapCustom.CollisionType collisionType) {
+        this.loadFactor = loadFactor;
+        this.hashFunctionType = hashFunctionType;
+        this.collisionType = collisionType;
+        allocate(Hashing.nextPrime(Math.max(3, initialCapacity)));
+    }
+
+    public IntIntHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, HashMapCustom.HashFunctionType.PAF, HashMapCustom.CollisionType.LINEAR_PROBING);
+    }
+
+    public long getCollisionCount() { return collisionCount; }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public boolean containsKey(int key) {
+        return findSlot(key, false) >= 0;
+    }
+
+    public int get(int key, int defaultValue) {
+        int slot = findSlot(key, false);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    public void put(int key, int value) {
+        int slot = insertSlot(key);
+        values[slot] = value;
+    }
+
+    // Adds delta to the value of key (0 if absent) with a single probe sequence and returns the new value
+    public int addTo(int key, int delta) {
+        int slot = insertSlot(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    public boolean remove(int key) {
+        int slot = findSlot(key, false);
+        if (slot < 0) return false;
+        values[slot] = 0;
+        states[slot] = DELETED;
+        size--;
+        tombstones++;
+        return true;
+    }
+
+    // Empties the map but keeps its capacity, so it can be reused without reallocating
+    public void clear() {
+        Arrays.fill(values, 0);
+        Arrays.fill(states, EMPTY);
+        size = 0;
+        tombstones = 0;
+    }
+
+    // Slot iteration without allocating entries
+    public int capacity() { return keys.length; }
+
+    public boolean isOccupied(int slot) { return states[slot] == FULL; }
+
+    public int keyAt(int slot) { return keys[slot]; }
+
+    public int valueAt(int slot) { return values[slot]; }
+
+    private int insertSlot(int key) {
+        // Live entries and tombstones both lengthen probe chains, so both count against the load factor
+        if ((double) (size + tombstones + 1) / keys.length > loadFactor) {
+            if (tombstones > size) resize(keys.length); // dropping the tombstones frees enough room
+            else resize(Hashing.nextPrime(keys.length * 2));
+        }
+
+        int slot = findSlot(key, true);
+        if (slot >= 0) return slot;
+        if (slot == NO_SLOT) throw new IllegalStateException("Failed to find slot for insertion.");
+
+        slot = -slot - 1;
+        if (states[slot] == DELETED) tombstones--;
+        keys[slot] = key;
+        values[slot] = 0;
+        states[slot] = FULL;
+        size++;
+        return slot;
+    }
+
+    // Returns the slot holding key. When absent: -(free slot + 1) if forInsert, otherwise NO_SLOT.
+    private int findSlot(int key, boolean forInsert) {
+        long hash = Hashing.hash(key, hashFunctionType);
+        int n = keys.length;
+        int idx = Hashing.homeSlot(hash, n);
+        int step = collisionType == HashMapCustom.CollisionType.DOUBLE_HASHING ? Hashing.step(hash, secondaryPrime) : 1;
+        int firstDeleted = -1;
+
+        for (int j = 0; j < n; j++) {
+            byte state = states[idx];
+            if (state == EMPTY) {
+                if (!forInsert) return NO_SLOT;
+                return -((firstDeleted != -1 ? firstDeleted : idx) + 1);
+            } else if (state == DELETED) {
+                if (firstDeleted == -1) firstDeleted = idx;
+            } else if (keys[idx] == key) {
+                return idx;
+            } else if (forInsert) {
+                collisionCount++;
+            }
+
+            idx += step;
+            if (idx >= n) idx -= n;
+        }
+
+        if (forInsert && firstDeleted != -1) return -(firstDeleted + 1);
+        return NO_SLOT;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        states = new byte[capacity];
+        secondaryPrime = Hashing.prevPrime(capacity - 1);
+        size = 0;
+        tombstones = 0;
+    }
+
+    private void resize(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        byte[] oldStates = states;
+        long collisions = collisionCount; // rehashing doesn't count as collisions
+        allocate(Hashing.nextPrime(newCapacity));
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStates[i] != FULL) continue;
+            int slot = -findSlot(oldKeys[i], true) - 1;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            states[slot] = FULL;
+            size++;
+        }
+        collisionCount = collisions;
+    }
+
+    @Override
+    public String toString() {
+        return "HashMaps.IntIntHashMap(size=" + size + ", tombstones=" + tombstones + ", capacity=" + keys.length
+                + ", collisions=" + collisionCount + ")";
+    }
+}
@@ -0,0 +1,182 @@
+package HashMaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/*
+ * Immutable set of Strings behind a minimal perfect hash (hash and displace).
+ *
+ * Keys are hashed into buckets of about four; bucket by bucket, largest first, a displacement is searched
+ * that sends all of the bucket's keys to free slots of a table with exactly one slot per key. Single-key
+ * buckets just take a free slot directly. A lookup is one hash pass over the chars, one displacement
+ * read and one comparison against the key packed in a shared char array, with nothing allocated.
+ * Meant for small static sets built once, e.g. stop words.
+ */
+public final class PerfectHashSet {
+
+    private static final int KEYS_PER_BUCKET = 4;
+    private static final int MAX_DISPLACEMENT = 1 << 24;
+
+    private final int[] displacements; // per bucket: >= 0 seed for its keys, < 0 is -(slot + 1) of its single key
+    private final char[] keyChars; // keys packed back to back in slot order
+    private final int[] keyOffsets; // key of slot s is keyChars[keyOffsets[s], keyOffsets[s + 1])
+    private final int size;
+
+    public PerfectHashSet(Collection<String> keys) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        this.size = distinct.size();
+        this.displacements = new int[Math.max(1, (size + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET)];
+
+        long[] hashes = new long[size];
+        List<List<Integer>> buckets = new ArrayList<>();
+        for (int b = 0; b < displacements.length; b++) buckets.add(new ArrayList<>());
+        for (int i = 0; i < size; i++) {
+            String key = distinct.get(i);
+            hashes[i] = hash(key);
+            buckets.get(bucket(hashes[i])).add(i);
+        }
+
+        Integer[] order = new Integer[buckets.size()];
+        for (int b = 0; b < order.length; b++) order[b] = b;
+        Arrays.sort(order, (x, y) -> buckets.get(y).size() - buckets.get(x).size());
+
+        int[] slotKeys = new int[size]; // slot -> key index
+        Arrays.fill(slotKeys, -1);
+        int freeSlot = 0;
+        for (int b : order) {
+            List<Integer> bucket = buckets.get(b);
+            if (bucket.isEmpty()) break;
+
+            if (bucket.size() == 1) {
+                while (slotKeys[freeSlot] >= 0) freeSlot++;
+                slotKeys[freeSlot] = bucket.get(0);
+                displacements[b] = -(freeSlot + 1);
+                continue;
+            }
+            displacements[b] = place(bucket, hashes, slotKeys);
+        }
+
+        int totalChars = 0;
+        for (String key : distinct) totalChars += key.length();
+        this.keyChars = new char[totalChars];
+        this.keyOffsets = new int[size + 1];
+        for (int slot = 0; slot < size; slot++) {
+            String key = distinct.get(slotKeys[slot]);
+            key.getChars(0, key.length(), keyChars, keyOffsets[slot]);
+            keyOffsets[slot + 1] = keyOffsets[slot] + key.length();
+        }
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    // Same for any two sets with the same keys, whatever order they were added in
+    public long fingerprint() {
+        long fingerprint = size;
+        for (int slot = 0; slot < size; slot++) {
+            fingerprint += hash(keyChars, keyOffsets[slot], keyOffsets[slot + 1] - keyOffsets[slot]);
+        }
+        return fingerprint;
+    }
+
+    public boolean contains(CharSequence key) {
+        if (size == 0) return false;
+
+        int slot = slotOf(hash(key));
+        int start = keyOffsets[slot];
+        if (keyOffsets[slot + 1] - start != key.length()) return false;
+        for (int i = 0; i < key.length(); i++) {
+            if (keyChars[start + i] != key.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // Membership of chars[offset, offset + length), e.g. a tokenizer's buffer
+    public boolean contains(char[] chars, int offset, int length) {
+        if (size == 0) return false;
+
+        int slot = slotOf(hash(chars, offset, length));
+        int start = keyOffsets[slot];
+        if (keyOffsets[slot + 1] - start != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (keyChars[start + i] != chars[offset + i]) return false;
+        }
+        return true;
+    }
+
+    // Keys in slot order
+    public List<String> keys() {
+        List<String> keys = new ArrayList<>(size);
+        for (int slot = 0; slot < size; slot++) {
+            keys.add(new String(keyChars, keyOffsets[slot], keyOffsets[slot + 1] - keyOffsets[slot]));
+        }
+        return keys;
+    }
+
+    // First displacement that puts every key of the bucket into a distinct free slot
+    private int place(List<Integer> bucket, long[] hashes, int[] slotKeys) {
+        int[] slots = new int[bucket.size()];
+        for (int displacement = 0; displacement < MAX_DISPLACEMENT; displacement++) {
+            boolean free = true;
+            for (int i = 0; i < slots.length && free; i++) {
+                slots[i] = slot(hashes[bucket.get(i)], displacement, size);
+                if (slotKeys[slots[i]] >= 0) free = false;
+                for (int j = 0; j < i && free; j++) {
+                    if (slots[j] == slots[i]) free = false;
+                }
+            }
+            if (free) {
+                for (int i = 0; i < slots.length; i++) slotKeys[slots[i]] = bucket.get(i);
+                return displacement;
+            }
+        }
+        throw new IllegalStateException("No perfect hash found for " + bucket.size() + " keys with equal hashes.");
+    }
+
+    private int slotOf(long hash) {
+        int displacement = displacements[bucket(hash)];
+        return displacement < 0 ? -displacement - 1 : slot(hash, displacement, size);
+    }
+
+    // Ranges are reduced with a multiply and shift instead of a division: (32 random bits * n) >>> 32 < n
+    private int bucket(long hash) {
+        return (int) (((hash >>> 32) * displacements.length) >>> 32);
+    }
+
+    private static int slot(long hash, int displacement, int n) {
+        long h = hash ^ (displacement * 0x9E3779B97F4A7C15L);
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return (int) (((h >>> 32) * n) >>> 32);
+    }
+
+    // FNV-1a over the chars, finished with a 64 bit mix so both halves are usable
+    private static long hash(char[] chars, int offset, int length) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ chars[i]) * 0x100000001B3L;
+        }
+        return finish(h);
+    }
+
+    private static long hash(CharSequence chars) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < chars.length(); i++) {
+            h = (h ^ chars.charAt(i)) * 0x100000001B3L;
+        }
+        return finish(h);
+    }
+
+    private static long finish(long h) {
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    @Override
+    public String toString() {
+        return "HashMaps.PerfectHashSet [size=" + size + ", buckets=" + displacements.length + "]";
+    }
+}
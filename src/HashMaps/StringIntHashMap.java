@@ -0,0 +1,202 @@
+package HashMaps;
+
+import java.util.Arrays;
+
+/*
+ * Open-addressing String -> int map with parallel key/value arrays.
+ *
+ * Same hash function and collision options as HashMapCustom, but values are stored unboxed and there is
+ * no Entry object per slot, so put/get/addTo on an existing key never allocate. Lookups take any
+ * CharSequence, e.g. a tokenizer's reused view, and compare it by content against the stored Strings.
+ */
+public class StringIntHashMap {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 101;
+    private static final double DEFAULT_LOAD_FACTOR = 0.5;
+    private static final int NO_SLOT = Integer.MIN_VALUE;
+
+    private String[] keys;
+    private int[] values;
+    private boolean[] deleted; // tombstones
+    private int size;
+    private int tombstones;
+    private int secondaryPrime; // q for double hashing, recomputed only on resize
+
+    private final double loadFactor;
+    private final HashMapCustom.HashFunctionType hashFunctionType;
+    private final HashMapCustom.CollisionType collisionType;
+    private long collisionCount;
+
+    public StringIntHashMap(int initialCapacity, double loadFactor,
+                            HashMapCustom.HashFunctionType hashFunctionType, HashMapCustom.CollisionType collisionType) {
+        this.loadFactor = loadFactor;
+        this.hashFunctionType = hashFunctionType;
+        this.collisionType = collisionType;
+        allocate(Hashing.nextPrime(Math.max(3, initialCapacity)));
+    }
+
+    public StringIntHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, HashMapCustom.HashFunctionType.PAF, HashMapCustom.CollisionType.LINEAR_PROBING);
+    }
+
+    public long getCollisionCount() { return collisionCount; }
+
+    public int size() { return size; }
+
+    public int getTombstoneCount() { return tombstones; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public boolean containsKey(CharSequence key) {
+        return findSlot(key, false) >= 0;
+    }
+
+    public int get(CharSequence key, int defaultValue) {
+        int slot = findSlot(key, false);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    public void put(String key, int value) {
+        int slot = insertSlot(key);
+        values[slot] = value;
+    }
+
+    // Adds delta to the value of key (0 if absent) with a single probe sequence and returns the new value
+    public int addTo(CharSequence key, int delta) {
+        int slot = insertSlot(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    public boolean remove(CharSequence key) {
+        int slot = findSlot(key, false);
+        if (slot < 0) return false;
+        keys[slot] = null;
+        values[slot] = 0;
+        deleted[slot] = true;
+        size--;
+        tombstones++;
+        return true;
+    }
+
+    // Grows the arrays once, if needed, so that expectedSize live keys fit without another resize
+    public void ensureCapacity(int expectedSize) {
+        if ((double) (expectedSize + tombstones) / keys.length <= loadFactor) return;
+        resize(Math.max(keys.length, Hashing.capacityFor(expectedSize, loadFactor)));
+    }
+
+    // Rehashes the live keys into fresh arrays of the same capacity, dropping every tombstone
+    public void compact() {
+        if (tombstones > 0) resize(keys.length);
+    }
+
+    // Independent map with the same keys and values, e.g. a frozen copy to hand to readers
+    public StringIntHashMap copy() {
+        StringIntHashMap copy = new StringIntHashMap(3, loadFactor, hashFunctionType, collisionType);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.deleted = deleted.clone();
+        copy.size = size;
+        copy.tombstones = tombstones;
+        copy.secondaryPrime = secondaryPrime;
+        return copy;
+    }
+
+    // Empties the map but keeps its capacity, so it can be reused without reallocating
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, 0);
+        Arrays.fill(deleted, false);
+        size = 0;
+        tombstones = 0;
+    }
+
+    // Slot iteration without allocating entries: keyAt returns null for empty slots
+    public int capacity() { return keys.length; }
+
+    public String keyAt(int slot) { return keys[slot]; }
+
+    public int valueAt(int slot) { return values[slot]; }
+
+    // A new key is stored as key.toString(), which is free for a String
+    private int insertSlot(CharSequence key) {
+        if (key == null) throw new IllegalArgumentException("Key must not be null.");
+        if ((double) (size + tombstones + 1) / keys.length > loadFactor) {
+            // Tombstones lengthen probes like live keys; rehash in place when they are most of the load
+            resize(tombstones > size ? keys.length : Hashing.nextPrime(keys.length * 2));
+        }
+
+        int slot = findSlot(key, true);
+        if (slot >= 0) return slot;
+        if (slot == NO_SLOT) throw new IllegalStateException("Failed to find slot for insertion.");
+
+        slot = -slot - 1;
+        if (deleted[slot]) tombstones--;
+        keys[slot] = key.toString();
+        values[slot] = 0;
+        deleted[slot] = false;
+        size++;
+        return slot;
+    }
+
+    // Returns the slot holding key. When absent: -(free slot + 1) if forInsert, otherwise NO_SLOT.
+    private int findSlot(CharSequence key, boolean forInsert) {
+        long hash = Hashing.hash(key, hashFunctionType);
+        int n = keys.length;
+        int idx = Hashing.homeSlot(hash, n);
+        int step = collisionType == HashMapCustom.CollisionType.DOUBLE_HASHING ? Hashing.step(hash, secondaryPrime) : 1;
+        int firstDeleted = -1;
+
+        for (int j = 0; j < n; j++) {
+            String k = keys[idx];
+            if (k == null) {
+                if (!deleted[idx]) {
+                    if (!forInsert) return NO_SLOT;
+                    return -((firstDeleted != -1 ? firstDeleted : idx) + 1);
+                }
+                if (firstDeleted == -1) firstDeleted = idx;
+            } else if (k.contentEquals(key)) {
+                return idx;
+            } else if (forInsert) {
+                collisionCount++;
+            }
+
+            idx += step;
+            if (idx >= n) idx -= n;
+        }
+
+        if (forInsert && firstDeleted != -1) return -(firstDeleted + 1);
+        return NO_SLOT;
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        values = new int[capacity];
+        deleted = new boolean[capacity];
+        secondaryPrime = Hashing.prevPrime(capacity - 1);
+        size = 0;
+        tombstones = 0;
+    }
+
+    private void resize(int newCapacity) {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        long collisions = collisionCount; // rehashing doesn't count as collisions
+        allocate(Hashing.nextPrime(newCapacity));
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) continue;
+            int slot = -findSlot(oldKeys[i], true) - 1;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            size++;
+        }
+        collisionCount = collisions;
+    }
+
+    @Override
+    public String toString() {
+        return "HashMaps.StringIntHashMap(size=" + size + ", capacity=" + keys.length
+                + ", collisions=" + collisionCount + ")";
+    }
+}
@@ -0,0 +1,88 @@
+package Index;
+
+import HashMaps.StringIntHashMap;
+
+/*
+ * BM25F relevance of a term in a document, from the per-field term frequencies a posting carries.
+ *
+ *   tf    = sum over fields of weight(f) * tf(f) / (1 - B + B * length(f) / averageLength(f))
+ *   score = idf * tf * (K1 + 1) / (K1 + tf),  idf = ln(1 + (N - df + 0.5) / (df + 0.5))
+ *
+ * Field weights keep the ratio of the field bonuses, with content at 1. A term can score at most
+ * idf * (K1 + 1). Scores are returned as fixed point ints, SCALE per unit, so they add up in the same
+ * IntIntHashMap and pack into the same ranking longs as the field bonuses do. Immutable.
+ *
+ * A shard of a larger index scores with the collection-wide document count, average lengths and document
+ * frequencies instead of its own, so every shard ranks a document exactly as one big index would.
+ */
+public final class Bm25F {
+
+    public static final float K1 = 1.2f;
+    public static final float B = 0.75f;
+    public static final int SCALE = 1000;
+
+    private static final float[] WEIGHTS = new float[Fields.COUNT];
+
+    static {
+        WEIGHTS[Fields.HEADLINE] = (float) Fields.HEADLINE_WEIGHT / Fields.CONTENT_WEIGHT;
+        WEIGHTS[Fields.SUMMARY] = (float) Fields.SUMMARY_WEIGHT / Fields.CONTENT_WEIGHT;
+        WEIGHTS[Fields.CONTENT] = 1;
+    }
+
+    private final int[] lengths; // docId * Fields.COUNT + field, shared with FieldLengths
+    private final float[] lengthFactors = new float[Fields.COUNT]; // B / averageLength(f)
+    private final int documentCount;
+    private final StringIntHashMap docFrequencies; // collection-wide, null to use the local ones
+    private final StringIntHashMap deletedPostings; // per term, postings of deleted docIDs the local counts include
+
+    Bm25F(int[] lengths, float[] averageLengths, int documentCount, StringIntHashMap docFrequencies,
+          StringIntHashMap deletedPostings) {
+        this.lengths = lengths;
+        this.documentCount = documentCount;
+        this.docFrequencies = docFrequencies;
+        this.deletedPostings = deletedPostings;
+        for (int field = 0; field < Fields.COUNT; field++) {
+            lengthFactors[field] = averageLengths[field] > 0 ? B / averageLengths[field] : 0;
+        }
+    }
+
+    // docFrequency must count live documents only, ln goes negative once it passes the document count
+    public float idf(int docFrequency) {
+        return (float) Math.log(1 + (documentCount - docFrequency + 0.5) / (docFrequency + 0.5));
+    }
+
+    // Collection-wide document frequency of the term when there is one, else the local one given less the
+    // postings of deleted documents it still includes
+    public int docFrequency(String term, int docFrequency) {
+        if (docFrequencies != null) return docFrequencies.get(term, docFrequency);
+        return deletedPostings == null ? docFrequency : docFrequency - deletedPostings.get(term, 0);
+    }
+
+    public float idf(String term, int docFrequency) {
+        return idf(docFrequency(term, docFrequency));
+    }
+
+    public int score(float idf, int docId, int headlineTf, int summaryTf, int contentTf) {
+        int base = docId * Fields.COUNT;
+        float tf = 0;
+        if (headlineTf > 0) tf += fieldTf(headlineTf, Fields.HEADLINE, lengths[base + Fields.HEADLINE]);
+        if (summaryTf > 0) tf += fieldTf(summaryTf, Fields.SUMMARY, lengths[base + Fields.SUMMARY]);
+        if (contentTf > 0) tf += fieldTf(contentTf, Fields.CONTENT, lengths[base + Fields.CONTENT]);
+        return Math.round(SCALE * idf * tf * (K1 + 1) / (K1 + tf));
+    }
+
+    public int score(float idf, PostingList.Cursor cursor) {
+        return score(idf, cursor.docId(), cursor.headlineFrequency(), cursor.summaryFrequency(), cursor.contentFrequency());
+    }
+
+    // Best score a single term can reach, what relevancy is measured against
+    public int maxScore(float idf) {
+        return Math.round(SCALE * idf * (K1 + 1));
+    }
+
+    public int getDocumentCount() { return documentCount; }
+
+    private float fieldTf(int tf, int field, int length) {
+        return WEIGHTS[field] * tf / (1 - B + lengthFactors[field] * length);
+    }
+}
@@ -0,0 +1,224 @@
+package Index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Document-at-a-time iteration over matching docIDs in increasing order, for boolean and phrase queries.
+ *
+ * docId() is -1 before the first call and NO_MORE_DOCS once exhausted. advance(target) moves to the
+ * first match >= target and never goes backwards, which lets a conjunction skip over whole posting
+ * blocks of its denser terms while following its rarest one.
+ */
+public abstract class DocIterator {
+
+    public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    protected int docId = -1;
+
+    public int docId() { return docId; }
+
+    public abstract int nextDoc();
+
+    public abstract int advance(int target);
+
+    // Upper bound on the number of matches, used to order conjunctions
+    public abstract long cost();
+
+    // Postings of one term: the main list followed by the delta segment, whose docIDs are all larger
+    public static final class Term extends DocIterator {
+        private final String term;
+        private final PostingList.Cursor main;
+        private final PostingList.Cursor delta;
+        private PostingList.Cursor current;
+        private final long cost;
+
+        public Term(String term, PostingList mainList, PostingList deltaList) {
+            this.term = term;
+            this.main = mainList == null ? null : mainList.cursor();
+            this.delta = deltaList == null ? null : deltaList.cursor();
+            this.current = main != null ? main : delta;
+            this.cost = (mainList == null ? 0 : mainList.size()) + (deltaList == null ? 0 : deltaList.size());
+        }
+
+        @Override
+        public int nextDoc() {
+            if (current == null) return docId = NO_MORE_DOCS;
+            if (current.next()) return docId = current.docId();
+            if (current == main && delta != null) {
+                current = delta;
+                if (delta.next()) return docId = delta.docId();
+            }
+            current = null;
+            return docId = NO_MORE_DOCS;
+        }
+
+        @Override
+        public int advance(int target) {
+            if (docId >= target) return docId;
+            if (current == null) return docId = NO_MORE_DOCS;
+            if (current.advance(target)) return docId = current.docId();
+            if (current == main && delta != null) {
+                current = delta;
+                if (delta.advance(target)) return docId = delta.docId();
+            }
+            current = null;
+            return docId = NO_MORE_DOCS;
+        }
+
+        @Override
+        public long cost() { return cost; }
+
+        public String getTerm() { return term; }
+
+        public int fieldScore() { return current.fieldScore(); }
+
+        public int score(Bm25F scorer, float idf) { return scorer.score(idf, current); }
+
+        // Positions in the current document; valid until this iterator moves
+        public int[] positions() { return current.positions(); }
+
+        public int positionCount() { return current.positionCount(); }
+    }
+
+    // Documents matching every required iterator and none of the excluded ones
+    public static final class And extends DocIterator {
+        private final DocIterator[] required; // rarest first, it leads
+        private final DocIterator[] excluded;
+
+        public And(List<? extends DocIterator> required, List<? extends DocIterator> excluded) {
+            List<DocIterator> sorted = new ArrayList<>(required);
+            sorted.sort(Comparator.comparingLong(DocIterator::cost));
+            this.required = sorted.toArray(new DocIterator[0]);
+            this.excluded = excluded.toArray(new DocIterator[0]);
+        }
+
+        @Override
+        public int nextDoc() {
+            return align(required[0].nextDoc());
+        }
+
+        @Override
+        public int advance(int target) {
+            if (docId >= target) return docId;
+            return align(required[0].advance(target));
+        }
+
+        // Leapfrogs the other iterators to the lead's candidate until they all agree on one
+        private int align(int target) {
+            candidates:
+            while (target != NO_MORE_DOCS) {
+                for (int i = 1; i < required.length; i++) {
+                    int other = required[i].advance(target);
+                    if (other > target) {
+                        target = required[0].advance(other);
+                        continue candidates;
+                    }
+                }
+                for (DocIterator exclude : excluded) {
+                    if (exclude.advance(target) == target) {
+                        target = required[0].nextDoc();
+                        continue candidates;
+                    }
+                }
+                return docId = target;
+            }
+            return docId = NO_MORE_DOCS;
+        }
+
+        @Override
+        public long cost() { return required[0].cost(); }
+    }
+
+    public static final class Or extends DocIterator {
+        private final DocIterator[] clauses;
+
+        public Or(List<? extends DocIterator> clauses) {
+            this.clauses = clauses.toArray(new DocIterator[0]);
+        }
+
+        @Override
+        public int nextDoc() {
+            return docId == NO_MORE_DOCS ? NO_MORE_DOCS : advance(docId + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+            if (docId >= target) return docId;
+            int min = NO_MORE_DOCS;
+            for (DocIterator clause : clauses) {
+                min = Math.min(min, clause.advance(target));
+            }
+            return docId = min;
+        }
+
+        @Override
+        public long cost() {
+            long cost = 0;
+            for (DocIterator clause : clauses) cost += clause.cost();
+            return cost;
+        }
+    }
+
+    // Terms at fixed distances from each other: term i at p + offsets[i] for some p
+    public static final class Phrase extends DocIterator {
+        private final Term[] terms;
+        private final int[] offsets;
+        private final int[][] positions;
+        private final int[] counts;
+        private final int[] cursors;
+        private final And conjunction;
+
+        public Phrase(List<Term> terms, int[] offsets) {
+            this.terms = terms.toArray(new Term[0]);
+            this.offsets = offsets;
+            this.positions = new int[offsets.length][];
+            this.counts = new int[offsets.length];
+            this.cursors = new int[offsets.length];
+            this.conjunction = new And(terms, new ArrayList<DocIterator>());
+        }
+
+        @Override
+        public int nextDoc() {
+            return verify(conjunction.nextDoc());
+        }
+
+        @Override
+        public int advance(int target) {
+            if (docId >= target) return docId;
+            return verify(conjunction.advance(target));
+        }
+
+        private int verify(int candidate) {
+            while (candidate != NO_MORE_DOCS && !matchesPositions()) candidate = conjunction.nextDoc();
+            return docId = candidate;
+        }
+
+        // Walks the first term's positions; every other term keeps a cursor since the wanted position only grows
+        private boolean matchesPositions() {
+            for (int i = 0; i < terms.length; i++) {
+                positions[i] = terms[i].positions();
+                counts[i] = terms[i].positionCount();
+            }
+            Arrays.fill(cursors, 0);
+
+            starts:
+            for (int p = 0; p < counts[0]; p++) {
+                int start = positions[0][p] - offsets[0];
+                for (int i = 1; i < terms.length; i++) {
+                    int wanted = start + offsets[i];
+                    while (cursors[i] < counts[i] && positions[i][cursors[i]] < wanted) cursors[i]++;
+                    if (cursors[i] == counts[i]) return false;
+                    if (positions[i][cursors[i]] != wanted) continue starts;
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public long cost() { return conjunction.cost(); }
+    }
+}
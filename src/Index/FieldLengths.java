@@ -0,0 +1,77 @@
+package Index;
+
+import HashMaps.StringIntHashMap;
+
+import java.util.Arrays;
+
+/*
+ * Indexed token count of every field of every document, the length statistics BM25F normalizes with.
+ *
+ * Lengths sit in one int array, docId * Fields.COUNT + field, that is only ever appended to: a docID's
+ * lengths are written once when it is indexed and never change, so a Bm25F built over the array stays
+ * valid while later documents are added behind it. Only the writer thread touches this class.
+ */
+public class FieldLengths {
+
+    private int[] lengths;
+    private int documentCount; // docIDs with lengths, deleted ones included
+    private final long[] totals = new long[Fields.COUNT]; // over live documents
+    private int liveCount;
+
+    public FieldLengths(int expectedDocuments) {
+        this.lengths = new int[Math.max(1, expectedDocuments) * Fields.COUNT];
+    }
+
+    public FieldLengths() {
+        this(1024);
+    }
+
+    // Lengths of a newly indexed docID; docIDs skipped on the way keep length 0
+    public void add(int docId, int headlineLength, int summaryLength, int contentLength) {
+        if ((docId + 1) * Fields.COUNT > lengths.length) {
+            lengths = Arrays.copyOf(lengths, Math.max(2 * lengths.length, (docId + 1) * Fields.COUNT));
+        }
+        int base = docId * Fields.COUNT;
+        lengths[base + Fields.HEADLINE] = headlineLength;
+        lengths[base + Fields.SUMMARY] = summaryLength;
+        lengths[base + Fields.CONTENT] = contentLength;
+        documentCount = Math.max(documentCount, docId + 1);
+
+        totals[Fields.HEADLINE] += headlineLength;
+        totals[Fields.SUMMARY] += summaryLength;
+        totals[Fields.CONTENT] += contentLength;
+        liveCount++;
+    }
+
+    // Takes a deleted document out of the averages; its slots stay for readers of older snapshots
+    public void remove(int docId) {
+        if (docId >= documentCount) return; // loaded but never indexed
+        int base = docId * Fields.COUNT;
+        for (int field = 0; field < Fields.COUNT; field++) totals[field] -= lengths[base + field];
+        liveCount--;
+    }
+
+    public int length(int docId, int field) { return lengths[docId * Fields.COUNT + field]; }
+
+    public int getDocumentCount() { return documentCount; }
+
+    public int getLiveCount() { return liveCount; }
+
+    // Sum of the field's lengths over live documents
+    public long getTotalLength(int field) { return totals[field]; }
+
+    // Scorer over the statistics as they are now; later adds don't change it. deletedPostings counts, per
+    // term, the postings of deleted documents still in the lists, null if there are none.
+    public Bm25F scorer(StringIntHashMap deletedPostings) {
+        float[] averages = new float[Fields.COUNT];
+        for (int field = 0; field < Fields.COUNT; field++) {
+            averages[field] = liveCount == 0 ? 0 : (float) totals[field] / liveCount;
+        }
+        return new Bm25F(lengths, averages, liveCount, null, deletedPostings);
+    }
+
+    // Scorer for a shard: this one's lengths, everything else collection-wide
+    public Bm25F scorer(int documentCount, float[] averageLengths, StringIntHashMap docFrequencies) {
+        return new Bm25F(lengths, averageLengths, documentCount, docFrequencies, null);
+    }
+}
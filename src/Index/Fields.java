@@ -0,0 +1,20 @@
+package Index;
+
+public final class Fields {
+
+    public static final int HEADLINE = 0;
+    public static final int SUMMARY = 1;
+    public static final int CONTENT = 2;
+    public static final int COUNT = 3;
+
+    // Token positions keep counting across fields, but each field starts this far after the previous one
+    // ends, so a phrase of fewer tokens can't match across a field boundary
+    public static final int POSITION_GAP = 256;
+
+    // Score bonuses for a term found in the field
+    public static final int HEADLINE_WEIGHT = 19;
+    public static final int SUMMARY_WEIGHT = 7;
+    public static final int CONTENT_WEIGHT = 5;
+
+    private Fields() { }
+}
@@ -0,0 +1,224 @@
+package Index;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/*
+ * Process-wide registry of named counters, histograms and gauges, dumped as "name value" lines or JSON.
+ *
+ * Recording is off until setEnabled(true): counters and histograms then cost one volatile read per call,
+ * and callers that would have to measure something first check isEnabled() before doing it. Counters and
+ * histograms are safe to update from many threads. Histograms keep 16 linear buckets per power of two,
+ * so any recorded value is reported within 1/16 of itself however large it is. Gauges are read only
+ * when the registry is dumped; garbage collector and heap gauges are always registered.
+ */
+public final class Metrics {
+
+    private static volatile boolean enabled;
+
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService reporter;
+
+    static {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String name = "gc_" + collector.getName().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_");
+            gauge(name + "_count", collector::getCollectionCount);
+            gauge(name + "_millis", collector::getCollectionTime);
+        }
+        gauge("heap_used_bytes", () -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+    }
+
+    private Metrics() {}
+
+    public static void setEnabled(boolean enabled) { Metrics.enabled = enabled; }
+
+    public static boolean isEnabled() { return enabled; }
+
+    public static Counter counter(String name) { return counters.computeIfAbsent(name, key -> new Counter()); }
+
+    public static Histogram histogram(String name) { return histograms.computeIfAbsent(name, key -> new Histogram()); }
+
+    // Replaces any gauge already registered under the name
+    public static void gauge(String name, DoubleSupplier value) { gauges.put(name, value); }
+
+    // Zeroes every counter and histogram; gauges read live values and stay
+    public static void reset() {
+        for (Counter counter : counters.values()) counter.reset();
+        for (Histogram histogram : histograms.values()) histogram.reset();
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        private Counter() {}
+
+        public void increment() { add(1); }
+
+        public void add(long amount) {
+            if (enabled) value.add(amount);
+        }
+
+        public long get() { return value.sum(); }
+
+        public void reset() { value.reset(); }
+    }
+
+    public static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Histogram() {}
+
+        public void record(long value) { record(value, 1); }
+
+        // Negative values are recorded as 0
+        public void record(long value, long times) {
+            if (!enabled || times <= 0) return;
+            value = Math.max(0, value);
+            buckets.addAndGet(bucket(value), times);
+            count.add(times);
+            sum.add(value * times);
+            max.accumulate(value);
+        }
+
+        public long getCount() { return count.sum(); }
+
+        public double getMean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        public long getMax() { return max.get(); }
+
+        // Highest value of the bucket holding the percentile'th recorded value, capped at the max
+        public long percentile(double percentile) {
+            long n = count.sum();
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+            long seen = 0;
+            for (int bucket = 0; bucket < buckets.length(); bucket++) {
+                seen += buckets.get(bucket);
+                if (seen >= rank) return Math.min(getMax(), highestValue(bucket));
+            }
+            return getMax();
+        }
+
+        public void reset() {
+            for (int bucket = 0; bucket < buckets.length(); bucket++) buckets.set(bucket, 0);
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+
+        // Values below SUB_BUCKETS get a bucket each, above that [2^e, 2^(e+1)) is split into SUB_BUCKETS
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+        }
+
+        private static long highestValue(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int shift = bucket / SUB_BUCKETS - 1;
+            long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            return lowest + (1L << shift) - 1;
+        }
+    }
+
+    // One "name value" pair per line, histograms as name_count, name_mean, name_p50 ... name_max
+    public static String text() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            text.append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            String name = entry.getKey();
+            text.append(name).append("_count ").append(histogram.getCount()).append('\n');
+            text.append(name).append("_mean ").append(format(histogram.getMean())).append('\n');
+            text.append(name).append("_p50 ").append(histogram.percentile(50)).append('\n');
+            text.append(name).append("_p90 ").append(histogram.percentile(90)).append('\n');
+            text.append(name).append("_p99 ").append(histogram.percentile(99)).append('\n');
+            text.append(name).append("_max ").append(histogram.getMax()).append('\n');
+        }
+        for (Map.Entry<String, DoubleSupplier> entry : new TreeMap<>(gauges).entrySet()) {
+            text.append(entry.getKey()).append(' ').append(format(entry.getValue().getAsDouble())).append('\n');
+        }
+        return text.toString();
+    }
+
+    // {"counters": {...}, "histograms": {"name": {"count": ..., "p50": ...}}, "gauges": {...}}
+    public static String json() {
+        StringBuilder json = new StringBuilder("{\"counters\": {");
+        String separator = "";
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            json.append(separator).append('"').append(entry.getKey()).append("\": ").append(entry.getValue().get());
+            separator = ", ";
+        }
+        json.append("}, \"histograms\": {");
+        separator = "";
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            json.append(separator).append('"').append(entry.getKey()).append("\": {")
+                    .append("\"count\": ").append(histogram.getCount())
+                    .append(", \"mean\": ").append(format(histogram.getMean()))
+                    .append(", \"p50\": ").append(histogram.percentile(50))
+                    .append(", \"p90\": ").append(histogram.percentile(90))
+                    .append(", \"p99\": ").append(histogram.percentile(99))
+                    .append(", \"max\": ").append(histogram.getMax()).append('}');
+            separator = ", ";
+        }
+        json.append("}, \"gauges\": {");
+        separator = "";
+        for (Map.Entry<String, DoubleSupplier> entry : new TreeMap<>(gauges).entrySet()) {
+            json.append(separator).append('"').append(entry.getKey()).append("\": ")
+                    .append(format(entry.getValue().getAsDouble()));
+            separator = ", ";
+        }
+        return json.append("}}").toString();
+    }
+
+    // Enables recording and prints a dump to System.out every periodMillis until stopReporter is called
+    public static synchronized void startReporter(long periodMillis, boolean asJson) {
+        setEnabled(true);
+        if (reporter != null) return;
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.println(asJson ? json() : "---Metrics---\n" + text()),
+                periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stopReporter() {
+        if (reporter == null) return;
+        reporter.shutdown();
+        reporter = null;
+    }
+
+    // Whole numbers without a fraction, JSON has no NaN or Infinity
+    private static String format(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return "0";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
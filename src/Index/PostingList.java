@@ -0,0 +1,295 @@
+package Index;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+ * Compressed postings of one term.
+ *
+ * Layout of the backing buffer:
+ *   block table : blockCount x (int lastDocId, int byteOffset)
+ *   block data  : per posting vbyte(docId - previousDocId), vbyte(headlineTf), vbyte(summaryTf), vbyte(contentTf),
+ *                 vbyte(positionBytes), then headlineTf + summaryTf + contentTf positions as vbyte deltas
+ *
+ * DocIDs are strictly increasing. The first delta of a block is taken from the last docID of the
+ * previous block (or -1), so a cursor can jump straight to any block using only the block table; the
+ * block table doubles as the skip list for advance(). Positions are token positions in the article
+ * (see Fields.POSITION_GAP) and are only decoded when a phrase asks for them, the length prefix lets
+ * every other reader step over them.
+ */
+public class PostingList {
+
+    public static final int BLOCK_SIZE = 128;
+
+    private final ByteBuffer data;
+    private final int size;
+    private final int blockCount;
+
+    public PostingList(ByteBuffer data, int size) {
+        this.data = data;
+        this.size = size;
+        this.blockCount = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    // Number of documents containing the term
+    public int size() { return size; }
+
+    public int sizeInBytes() { return data.limit(); }
+
+    public ByteBuffer getData() { return data.duplicate(); }
+
+    public Cursor cursor() {
+        return new Cursor().reset(this);
+    }
+
+    public static class Cursor {
+        private PostingList list;
+        private ByteBuffer data;
+        private int position;
+        private int index;
+        private int docId;
+        private int headlineFrequency;
+        private int summaryFrequency;
+        private int contentFrequency;
+        private int positionsStart;
+        private int positionBytes;
+        private int[] positions = new int[16];
+
+        public Cursor reset(PostingList list) {
+            this.list = list;
+            this.data = list.data;
+            this.position = list.blockCount * 8;
+            this.index = 0;
+            this.docId = -1;
+            return this;
+        }
+
+        public boolean next() {
+            if (index >= list.size) {
+                docId = Integer.MAX_VALUE;
+                return false;
+            }
+            docId += readVInt();
+            headlineFrequency = readVInt();
+            summaryFrequency = readVInt();
+            contentFrequency = readVInt();
+            positionBytes = readVInt();
+            positionsStart = position;
+            position += positionBytes;
+            index++;
+            return true;
+        }
+
+        // Moves to the first posting with docId >= target, never backwards. Whole blocks whose last docID
+        // is below the target are skipped through the block table without decoding them.
+        public boolean advance(int target) {
+            if (index > 0 && docId >= target) return docId != Integer.MAX_VALUE;
+
+            int block = index / BLOCK_SIZE; // block of the next posting
+            if (block < list.blockCount && lastDocId(block) < target) {
+                int low = block + 1;
+                int high = list.blockCount - 1;
+                if (low > high || lastDocId(high) < target) {
+                    index = list.size;
+                    docId = Integer.MAX_VALUE;
+                    return false;
+                }
+                while (low < high) { // first block that can hold the target
+                    int middle = (low + high) >>> 1;
+                    if (lastDocId(middle) < target) low = middle + 1;
+                    else high = middle;
+                }
+                position = data.getInt(low * 8 + 4);
+                docId = lastDocId(low - 1);
+                index = low * BLOCK_SIZE;
+            }
+
+            while (next()) {
+                if (docId >= target) return true;
+            }
+            return false;
+        }
+
+        private int lastDocId(int block) {
+            return data.getInt(block * 8);
+        }
+
+        // Number of postings; an upper bound on what a cursor over the list can return
+        public int cost() { return list.size; }
+
+        private int readVInt() {
+            int b = data.get(position++);
+            int value = b & 0x7F;
+            int shift = 7;
+            while ((b & 0x80) != 0) {
+                b = data.get(position++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            }
+            return value;
+        }
+
+        public int docId() { return docId; }
+        public int headlineFrequency() { return headlineFrequency; }
+        public int summaryFrequency() { return summaryFrequency; }
+        public int contentFrequency() { return contentFrequency; }
+        public int positionCount() { return headlineFrequency + summaryFrequency + contentFrequency; }
+
+        // Positions of the term in the current article, ascending; valid until the cursor moves
+        public int[] positions() {
+            int count = positionCount();
+            if (positions.length < count) positions = new int[Math.max(count, 2 * positions.length)];
+
+            int saved = position;
+            position = positionsStart;
+            int previous = -1;
+            for (int i = 0; i < count; i++) {
+                previous += readVInt();
+                positions[i] = previous;
+            }
+            position = saved;
+            return positions;
+        }
+
+        // Fixed field bonuses used by ArticleLoader.search
+        public int fieldScore() {
+            int score = 0;
+            if (headlineFrequency > 0) score += Fields.HEADLINE_WEIGHT;
+            if (summaryFrequency > 0) score += Fields.SUMMARY_WEIGHT;
+            if (contentFrequency > 0) score += Fields.CONTENT_WEIGHT;
+            return score;
+        }
+    }
+
+    public static class Builder {
+        private byte[] bytes = new byte[16];
+        private int length;
+        private int size;
+        private int lastDocId = -1;
+        private int[] blockLastDoc = new int[1];
+        private int[] blockOffset = new int[1];
+
+        private byte[] positionScratch = new byte[16];
+
+        // positions[offset, offset + headlineTf + summaryTf + contentTf) ascending
+        public void add(int docId, int headlineTf, int summaryTf, int contentTf, int[] positions, int offset) {
+            int count = headlineTf + summaryTf + contentTf;
+            if (positionScratch.length < count * 5) positionScratch = new byte[Math.max(count * 5, 2 * positionScratch.length)];
+            int bytes = 0;
+            int previous = -1;
+            for (int i = offset; i < offset + count; i++) {
+                int delta = positions[i] - previous;
+                if (delta <= 0) throw new IllegalArgumentException("Positions must be increasing: " + positions[i] + " after " + previous);
+                while ((delta & ~0x7F) != 0) {
+                    positionScratch[bytes++] = (byte) ((delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                positionScratch[bytes++] = (byte) delta;
+                previous = positions[i];
+            }
+
+            addHeader(docId, headlineTf, summaryTf, contentTf, bytes);
+            writeBytes(positionScratch, bytes);
+        }
+
+        // Copies the cursor's current posting, positions as they are encoded
+        public void add(Cursor cursor) {
+            addHeader(cursor.docId(), cursor.headlineFrequency(), cursor.summaryFrequency(), cursor.contentFrequency(),
+                    cursor.positionBytes);
+            ensureSpace(cursor.positionBytes);
+            cursor.data.get(cursor.positionsStart, bytes, length, cursor.positionBytes);
+            length += cursor.positionBytes;
+        }
+
+        // Appends every posting of a list whose docIDs all come after the ones already added. Into an empty
+        // builder the encoded blocks are copied as they are, so merging a delta segment doesn't decode them.
+        public void addAll(PostingList list) {
+            if (size == 0 && list.size > 0) {
+                copyBlocks(list);
+                return;
+            }
+            Cursor cursor = list.cursor();
+            while (cursor.next()) {
+                add(cursor);
+            }
+        }
+
+        private void copyBlocks(PostingList list) {
+            int tableBytes = list.blockCount * 8;
+            length = list.data.limit() - tableBytes;
+            bytes = new byte[Math.max(16, length)];
+            list.data.get(tableBytes, bytes, 0, length);
+            blockLastDoc = new int[list.blockCount];
+            blockOffset = new int[list.blockCount];
+            for (int b = 0; b < list.blockCount; b++) {
+                blockLastDoc[b] = list.data.getInt(b * 8);
+                blockOffset[b] = list.data.getInt(b * 8 + 4) - tableBytes;
+            }
+            size = list.size;
+            lastDocId = blockLastDoc[list.blockCount - 1];
+        }
+
+        private void addHeader(int docId, int headlineTf, int summaryTf, int contentTf, int positionBytes) {
+            if (docId <= lastDocId) {
+                throw new IllegalArgumentException("DocIDs must be added in increasing order: " + docId + " after " + lastDocId);
+            }
+
+            int block = size / BLOCK_SIZE;
+            if (size % BLOCK_SIZE == 0) {
+                if (block == blockOffset.length) {
+                    blockOffset = Arrays.copyOf(blockOffset, block * 2);
+                    blockLastDoc = Arrays.copyOf(blockLastDoc, block * 2);
+                }
+                blockOffset[block] = length;
+            }
+
+            writeVInt(docId - lastDocId);
+            writeVInt(headlineTf);
+            writeVInt(summaryTf);
+            writeVInt(contentTf);
+            writeVInt(positionBytes);
+
+            blockLastDoc[block] = docId;
+            lastDocId = docId;
+            size++;
+        }
+
+        public int size() { return size; }
+
+        public int lastDocId() { return lastDocId; }
+
+        private void ensureSpace(int needed) {
+            if (length + needed > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + needed));
+            }
+        }
+
+        private void writeBytes(byte[] source, int count) {
+            ensureSpace(count);
+            System.arraycopy(source, 0, bytes, length, count);
+            length += count;
+        }
+
+        private void writeVInt(int value) {
+            ensureSpace(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        public PostingList build() {
+            int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            int tableBytes = blocks * 8;
+            ByteBuffer buffer = ByteBuffer.allocate(tableBytes + length);
+            for (int b = 0; b < blocks; b++) {
+                buffer.putInt(blockLastDoc[b]);
+                buffer.putInt(tableBytes + blockOffset[b]);
+            }
+            buffer.put(bytes, 0, length);
+            buffer.flip();
+            return new PostingList(buffer, size);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package Index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Parsed search query.
+ *
+ *   query  : and ( ["OR"] and )*              adjacent operands are ORed, as plain word queries always were
+ *   and    : unary ( ("AND" ["NOT"] | "NOT") unary )*
+ *   unary  : "(" query ")" | '"' words '"' | word | word "~" [digit] | pattern
+ *
+ * Operators are only recognized in upper case, so "and", "or" and "not" stay ordinary words. A quoted
+ * phrase matches its tokens at consecutive positions. A word the tokenizer splits, e.g. "covid-19",
+ * stands for the OR of its tokens. "a NOT b" means a AND NOT b; a query with only negated parts matches
+ * nothing. "word~2" stands for the terms within 2 edits of word, "word~" picks the edits from its length.
+ * A pattern is a word with '*' for any run of chars or '?' for one char, e.g. "vacc*" or "wom?n"; a '?'
+ * ending a word is punctuation. toString() is canonical and, for plain word queries, equals the old
+ * normalized query text.
+ */
+public abstract class Query {
+
+    private Query() { }
+
+    // Nothing but terms ORed together, i.e. a query without operators, phrases or parentheses
+    public boolean isPlainDisjunction() { return false; }
+
+    // Terms of a plain disjunction in query order
+    public List<String> terms() { return Collections.emptyList(); }
+
+    public static final class Term extends Query {
+        private final String term;
+
+        Term(String term) { this.term = term; }
+
+        public String getTerm() { return term; }
+
+        @Override
+        public boolean isPlainDisjunction() { return true; }
+
+        @Override
+        public List<String> terms() { return Collections.singletonList(term); }
+
+        @Override
+        public String toString() { return term; }
+    }
+
+    // Edits allowed for a misspelling of a word this long: none for very short words, where a single edit
+    // already reaches most of the vocabulary
+    public static int autoEdits(int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    // Terms within maxEdits of term
+    public static final class Fuzzy extends Query {
+        private final String term;
+        private final int maxEdits;
+
+        Fuzzy(String term, int maxEdits) {
+            this.term = term;
+            this.maxEdits = maxEdits;
+        }
+
+        public String getTerm() { return term; }
+        public int getMaxEdits() { return maxEdits; }
+
+        @Override
+        public String toString() { return term + "~" + maxEdits; }
+    }
+
+    // Lowercased pattern of token chars, '*' and '?'
+    public static final class Wildcard extends Query {
+        private final String pattern;
+
+        Wildcard(String pattern) { this.pattern = pattern; }
+
+        public String getPattern() { return pattern; }
+
+        @Override
+        public String toString() { return pattern; }
+    }
+
+    // Tokens in order; stop words are kept so the evaluator knows the gaps they leave
+    public static final class Phrase extends Query {
+        private final List<String> terms;
+
+        Phrase(List<String> terms) { this.terms = terms; }
+
+        public List<String> getTerms() { return terms; }
+
+        @Override
+        public String toString() { return "\"" + String.join(" ", terms) + "\""; }
+    }
+
+    public static final class And extends Query {
+        private final List<Query> required;
+        private final List<Query> excluded;
+
+        And(List<Query> required, List<Query> excluded) {
+            this.required = required;
+            this.excluded = excluded;
+        }
+
+        public List<Query> getRequired() { return required; }
+        public List<Query> getExcluded() { return excluded; }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (Query clause : required) {
+                if (text.length() > 0) text.append(" AND ");
+                text.append(grouped(clause));
+            }
+            for (Query clause : excluded) {
+                text.append(text.length() > 0 ? " AND NOT " : "NOT ").append(grouped(clause));
+            }
+            return text.toString();
+        }
+    }
+
+    public static final class Or extends Query {
+        private final List<Query> clauses;
+
+        Or(List<Query> clauses) { this.clauses = clauses; }
+
+        public List<Query> getClauses() { return clauses; }
+
+        @Override
+        public boolean isPlainDisjunction() {
+            for (Query clause : clauses) if (!(clause instanceof Term)) return false;
+            return true;
+        }
+
+        @Override
+        public List<String> terms() {
+            List<String> terms = new ArrayList<>();
+            for (Query clause : clauses) terms.addAll(clause.terms());
+            return terms;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (Query clause : clauses) {
+                if (text.length() > 0) text.append(' ');
+                text.append(grouped(clause));
+            }
+            return text.toString();
+        }
+    }
+
+    private static String grouped(Query clause) {
+        return clause instanceof And || clause instanceof Or ? "(" + clause + ")" : clause.toString();
+    }
+
+    // Null when nothing searchable is left, e.g. only delimiters or operators
+    public static Query parse(String text, Tokenizer tokenizer) {
+        Parser parser = new Parser(text == null ? "" : text, tokenizer);
+        List<Query> clauses = new ArrayList<>();
+        while (!parser.atEnd()) {
+            if (parser.peek() == Parser.CLOSE) { // unbalanced, ignore it
+                parser.consume();
+                continue;
+            }
+            Query clause = parser.parseOr();
+            if (clause != null) clauses.add(clause);
+        }
+        return or(clauses);
+    }
+
+    private static Query or(List<Query> clauses) {
+        List<Query> flat = new ArrayList<>();
+        for (Query clause : clauses) {
+            if (clause instanceof Or) flat.addAll(((Or) clause).clauses);
+            else flat.add(clause);
+        }
+        if (flat.isEmpty()) return null;
+        return flat.size() == 1 ? flat.get(0) : new Or(flat);
+    }
+
+    private static final class Parser {
+        static final String OPEN = "(";
+        static final String CLOSE = ")";
+        static final String AND = "AND";
+        static final String OR = "OR";
+        static final String NOT = "NOT";
+
+        private final List<String> lexemes = new ArrayList<>(); // operators, parentheses, words, "quoted text
+        private final Tokenizer tokenizer;
+        private int next;
+
+        Parser(String text, Tokenizer tokenizer) {
+            this.tokenizer = tokenizer;
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '(' || c == ')') {
+                    lexemes.add(c == '(' ? OPEN : CLOSE);
+                    i++;
+                } else if (c == '"') {
+                    int end = text.indexOf('"', i + 1);
+                    if (end < 0) end = text.length();
+                    lexemes.add(text.substring(i, end)); // keeps the opening quote as a marker
+                    i = end + 1;
+                } else {
+                    int end = i;
+                    while (end < text.length() && !Character.isWhitespace(text.charAt(end))
+                            && "()\"".indexOf(text.charAt(end)) < 0) end++;
+                    String word = text.substring(i, end);
+                    lexemes.add(word.equals(AND) || word.equals(OR) || word.equals(NOT) ? word.intern() : word);
+                    i = end;
+                }
+            }
+        }
+
+        boolean atEnd() { return next >= lexemes.size(); }
+
+        String peek() { return atEnd() ? null : lexemes.get(next); }
+
+        void consume() { next++; }
+
+        Query parseOr() {
+            List<Query> clauses = new ArrayList<>();
+            while (!atEnd() && peek() != CLOSE) {
+                if (peek() == OR) {
+                    consume();
+                    continue;
+                }
+                Query clause = parseAnd();
+                if (clause != null) clauses.add(clause);
+            }
+            return or(clauses);
+        }
+
+        Query parseAnd() {
+            List<Query> required = new ArrayList<>();
+            List<Query> excluded = new ArrayList<>();
+            if (peek() != AND && peek() != NOT) add(required, parseUnary());
+
+            while (peek() == AND || peek() == NOT) {
+                boolean negated = peek() == NOT;
+                consume();
+                if (!negated && peek() == NOT) {
+                    negated = true;
+                    consume();
+                }
+                add(negated ? excluded : required, parseUnary());
+            }
+
+            if (required.size() == 1 && excluded.isEmpty()) return required.get(0);
+            if (required.isEmpty() && excluded.isEmpty()) return null;
+            return new And(required, excluded);
+        }
+
+        // Null for an operand that has no tokens, or when an operator or ')' comes instead of an operand
+        Query parseUnary() {
+            String lexeme = peek();
+            if (lexeme == null || lexeme == CLOSE || lexeme == OR || lexeme == AND || lexeme == NOT) return null;
+            consume();
+
+            if (lexeme == OPEN) {
+                Query inner = parseOr();
+                if (peek() == CLOSE) consume();
+                return inner;
+            }
+
+            if (!lexeme.startsWith("\"")) {
+                Query expanded = expansion(lexeme);
+                if (expanded != null) return expanded;
+            }
+
+            List<String> tokens = tokens(lexeme);
+            if (tokens.isEmpty()) return null;
+            if (tokens.size() == 1) return new Term(tokens.get(0));
+            if (lexeme.startsWith("\"")) return new Phrase(tokens);
+
+            List<Query> clauses = new ArrayList<>();
+            for (String token : tokens) clauses.add(new Term(token));
+            return new Or(clauses);
+        }
+
+        // Fuzzy or wildcard query for a word written as one, null for anything else
+        private Query expansion(String lexeme) {
+            int tilde = lexeme.lastIndexOf('~');
+            if (tilde > 0) {
+                String edits = lexeme.substring(tilde + 1);
+                List<String> tokens = tokens(lexeme.substring(0, tilde));
+                if (tokens.size() != 1 || !(edits.isEmpty() || edits.matches("[0-2]"))) return null;
+                String term = tokens.get(0);
+                return new Fuzzy(term, edits.isEmpty() ? autoEdits(term.length()) : edits.charAt(0) - '0');
+            }
+
+            String word = lexeme.endsWith("?") ? lexeme.substring(0, lexeme.length() - 1) : lexeme;
+            if (word.indexOf('*') < 0 && word.indexOf('?') < 0) return null;
+            StringBuilder pattern = new StringBuilder(word.length());
+            boolean literal = false;
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (TermDictionary.isWildcard(c)) {
+                    pattern.append(c);
+                } else if (tokenizer.isTokenChar(c)) {
+                    pattern.append(Character.toLowerCase(c));
+                    literal = true;
+                } else {
+                    return null; // e.g. "covid-*", left to the tokenizer
+                }
+            }
+            return literal ? new Wildcard(pattern.toString()) : null;
+        }
+
+        private List<String> tokens(String text) {
+            List<String> tokens = new ArrayList<>();
+            Tokenizer.Tokens cursor = tokenizer.tokens().reset(text);
+            while (cursor.next()) tokens.add(cursor.toString());
+            return tokens;
+        }
+
+        private static void add(List<Query> clauses, Query clause) {
+            if (clause != null) clauses.add(clause);
+        }
+    }
+}
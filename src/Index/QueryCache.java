@@ -0,0 +1,184 @@
+package Index;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * LRU cache of ranked query results within a byte budget, cleared when the index generation moves on.
+ */
+public class QueryCache {
+
+    // Rough per-entry overhead: map node, key String header, Result object and array headers
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    public static class Result {
+        private final long[] ranked; // packed (score, docId) pairs, best first
+        private final int totalHits;
+        private final int maxScore; // 0 when scores are absolute
+
+        public Result(long[] ranked, int totalHits, int maxScore) {
+            this.ranked = ranked;
+            this.totalHits = totalHits;
+            this.maxScore = maxScore;
+        }
+
+        public Result(long[] ranked, int totalHits) {
+            this(ranked, totalHits, 0);
+        }
+
+        public long[] getRanked() { return ranked; }
+        public int getTotalHits() { return totalHits; }
+        public int getMaxScore() { return maxScore; }
+
+        long sizeInBytes(String key) {
+            return ENTRY_OVERHEAD_BYTES + 2L * key.length() + 8L * ranked.length;
+        }
+    }
+
+    // Keys are spread over independently locked segments, each an LRU over an equal share of the budget, so
+    // concurrent queries only contend when their keys land in the same segment
+    private static final int SEGMENTS = 16;
+
+    private static final class Segment {
+        private final LinkedHashMap<String, Result> entries = new LinkedHashMap<>(16, 0.75f, true); // access order
+        private long usedBytes;
+        private long generation;
+    }
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private volatile long budgetBytes;
+    private final AtomicLong generation = new AtomicLong(); // newest seen, segments catch up under their lock
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public QueryCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment();
+    }
+
+    public Result get(String key, long indexGeneration) {
+        advance(indexGeneration);
+        Segment segment = segmentFor(key);
+        Result result;
+        synchronized (segment) {
+            result = invalidateIfStale(segment, indexGeneration) ? segment.entries.get(key) : null;
+        }
+        if (result == null) misses.increment();
+        else hits.increment();
+        return result;
+    }
+
+    public void put(String key, Result result, long indexGeneration) {
+        advance(indexGeneration);
+        long segmentBudget = budgetBytes / SEGMENTS;
+        long size = result.sizeInBytes(key);
+        if (size > segmentBudget) return; // would never fit, don't flush everything for it
+
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            if (!invalidateIfStale(segment, indexGeneration)) return;
+            Result previous = segment.entries.put(key, result);
+            if (previous != null) segment.usedBytes -= previous.sizeInBytes(key);
+            segment.usedBytes += size;
+
+            Iterator<Map.Entry<String, Result>> eldest = segment.entries.entrySet().iterator();
+            while (segment.usedBytes > segmentBudget && eldest.hasNext()) {
+                Map.Entry<String, Result> entry = eldest.next();
+                segment.usedBytes -= entry.getValue().sizeInBytes(entry.getKey());
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    // A budget of 0 disables caching
+    public void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        if (budgetBytes <= 0) clear();
+    }
+
+    public long getBudgetBytes() { return budgetBytes; }
+
+    public boolean isEnabled() { return budgetBytes > 0; }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+                segment.usedBytes = 0;
+            }
+        }
+    }
+
+    // The first caller with a newer generation empties every segment, so stale entries don't hold on to
+    // the budget until their segment is next used
+    private void advance(long indexGeneration) {
+        long newest = generation.get();
+        if (indexGeneration <= newest || !generation.compareAndSet(newest, indexGeneration)) return;
+        boolean dropped = false;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                dropped |= !segment.entries.isEmpty();
+                invalidateIfStale(segment, indexGeneration);
+            }
+        }
+        if (dropped) invalidations.increment();
+    }
+
+    // false if the caller is behind the segment's generation and must not read or write its entries
+    private static boolean invalidateIfStale(Segment segment, long indexGeneration) {
+        if (indexGeneration == segment.generation) return true;
+        if (indexGeneration < segment.generation) return false;
+        segment.entries.clear();
+        segment.usedBytes = 0;
+        segment.generation = indexGeneration;
+        return true;
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getInvalidations() { return invalidations.sum(); }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public long getUsedBytes() {
+        long usedBytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                usedBytes += segment.usedBytes;
+            }
+        }
+        return usedBytes;
+    }
+
+    // One "name value" pair per line so the counters are easy to scrape
+    public String stats() {
+        return "query_cache_hits " + getHits() + "\n" +
+               "query_cache_misses " + getMisses() + "\n" +
+               "query_cache_evictions " + getEvictions() + "\n" +
+               "query_cache_invalidations " + getInvalidations() + "\n" +
+               "query_cache_entries " + size() + "\n" +
+               "query_cache_used_bytes " + getUsedBytes() + "\n" +
+               "query_cache_budget_bytes " + budgetBytes;
+    }
+}
@@ -0,0 +1,121 @@
+package Index;
+
+import java.util.Arrays;
+
+/*
+ * Ranked hits of one query plus a per-phase timing breakdown in nanoseconds.
+ *
+ * A SearchResult can be passed back into the next search to reuse its arrays. Field bonus scores are
+ * labeled by the fixed cutoffs of Relevancy.of; BM25F scores have no fixed range, so they are labeled by
+ * the percentage of the query's best attainable score they reach, against the same cutoffs.
+ */
+public class SearchResult {
+
+    public enum Relevancy {
+        HIGHLY_RELEVANT("HIGHLY Relevant"),
+        VERY_RELEVANT("Very Relevant"),
+        RELEVANT("Relevant"),
+        IRRELEVANT("Irrelevant");
+
+        private final String label;
+
+        Relevancy(String label) { this.label = label; }
+
+        public String getLabel() { return label; }
+
+        public static Relevancy of(int score) {
+            if (score > 70) return HIGHLY_RELEVANT;
+            if (score > 60) return VERY_RELEVANT;
+            if (score > 31) return RELEVANT;
+            return IRRELEVANT;
+        }
+    }
+
+    private String query;
+    private boolean emptyQuery;
+    private boolean cached;
+    private int[] docIds = new int[32];
+    private int[] scores = new int[32];
+    private int size;
+    private int totalHits;
+    private int maxScore; // 0 -> scores are absolute
+
+    private long normalizeNanos;
+    private long postingsNanos;
+    private long scoreNanos;
+    private long rankNanos;
+    private long totalNanos;
+
+    // Clears everything from a previous search
+    public void reset(String query) {
+        this.query = query;
+        this.emptyQuery = false;
+        this.cached = false;
+        this.size = 0;
+        this.totalHits = 0;
+        this.maxScore = 0;
+        this.normalizeNanos = 0;
+        this.postingsNanos = 0;
+        this.scoreNanos = 0;
+        this.rankNanos = 0;
+        this.totalNanos = 0;
+    }
+
+    // Hits packed the way the ranker orders them, (score << 32) | (Integer.MAX_VALUE - docId), best first
+    public void setHits(long[] ranked, int totalHits) {
+        if (ranked.length > docIds.length) {
+            docIds = Arrays.copyOf(docIds, ranked.length);
+            scores = Arrays.copyOf(scores, ranked.length);
+        }
+        for (int i = 0; i < ranked.length; i++) {
+            scores[i] = (int) (ranked[i] >>> 32);
+            docIds[i] = Integer.MAX_VALUE - (int) ranked[i];
+        }
+        this.size = ranked.length;
+        this.totalHits = totalHits;
+    }
+
+    // Best score the query could reach; relevancy is then judged relative to it
+    public void setMaxScore(int maxScore) { this.maxScore = maxScore; }
+
+    public void setEmptyQuery(boolean emptyQuery) { this.emptyQuery = emptyQuery; }
+    public void setCached(boolean cached) { this.cached = cached; }
+
+    public void setTimings(long normalizeNanos, long postingsNanos, long scoreNanos, long rankNanos, long totalNanos) {
+        this.normalizeNanos = normalizeNanos;
+        this.postingsNanos = postingsNanos;
+        this.scoreNanos = scoreNanos;
+        this.rankNanos = rankNanos;
+        this.totalNanos = totalNanos;
+    }
+
+    // Getters
+    public String getQuery() { return query; }
+    public boolean isEmptyQuery() { return emptyQuery; }
+    public boolean isCached() { return cached; }
+    public int size() { return size; }
+    public int getTotalHits() { return totalHits; }
+    public int getDocId(int rank) { return docIds[checkRank(rank)]; }
+    public int getScore(int rank) { return scores[checkRank(rank)]; }
+    public int getMaxScore() { return maxScore; }
+    public Relevancy getRelevancy(int rank) {
+        return Relevancy.of(maxScore > 0 ? (int) (100L * getScore(rank) / maxScore) : getScore(rank));
+    }
+
+    public long getNormalizeNanos() { return normalizeNanos; }
+    public long getPostingsNanos() { return postingsNanos; }
+    public long getScoreNanos() { return scoreNanos; }
+    public long getRankNanos() { return rankNanos; }
+    public long getTotalNanos() { return totalNanos; }
+
+    private int checkRank(int rank) {
+        if (rank < 0 || rank >= size) throw new IndexOutOfBoundsException("No hit at rank " + rank + ", size " + size);
+        return rank;
+    }
+
+    @Override
+    public String toString() {
+        return "Index.SearchResult [query='" + query + "', hits=" + size + "/" + totalHits
+                + ", cached=" + cached + ", totalNanos=" + totalNanos + "]";
+    }
+}
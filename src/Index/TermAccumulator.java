@@ -0,0 +1,128 @@
+package Index;
+
+import HashMaps.StringIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * Per-field term frequencies of one article at a time, over a vocabulary that grows across articles.
+ *
+ * Every distinct term gets a dense id the first time it is seen. Tokens are looked up straight from the
+ * tokenizer's view, so only the first occurrence of a new term allocates its String. Token positions are
+ * kept in text order and grouped by term on first request.
+ */
+public class TermAccumulator {
+
+    private final StringIntHashMap termIds = new StringIntHashMap();
+    private final ArrayList<String> terms = new ArrayList<>();
+    private int[] frequencies = new int[64 * Fields.COUNT]; // termId * COUNT + field, current article only
+    private int[] articleStamp = new int[64]; // article a term's frequencies belong to
+    private int[] articleTerms = new int[64]; // ids seen in the current article, first occurrence order
+    private int articleTermCount;
+    private int article = 1;
+    private final int[] fieldLengths = new int[Fields.COUNT]; // tokens added per field, current article only
+
+    private int[] tokenTerms = new int[256]; // term id and position of every token of the current article
+    private int[] tokenPositions = new int[256];
+    private int tokenCount;
+    private int[] positionStart = new int[64]; // by term id, into groupedPositions
+    private int[] groupedPositions = new int[256];
+    private boolean grouped;
+
+    public void add(CharSequence token, int field, int position) {
+        int id = termIds.get(token, -1);
+        if (id < 0) {
+            id = terms.size();
+            String term = token.toString();
+            terms.add(term);
+            termIds.put(term, id);
+            if (id == articleStamp.length) {
+                articleStamp = Arrays.copyOf(articleStamp, id * 2);
+                positionStart = Arrays.copyOf(positionStart, id * 2);
+                frequencies = Arrays.copyOf(frequencies, id * 2 * Fields.COUNT);
+            }
+        }
+
+        int base = id * Fields.COUNT;
+        if (articleStamp[id] != article) {
+            // first time in this article: the slots still hold an older article's counts
+            articleStamp[id] = article;
+            Arrays.fill(frequencies, base, base + Fields.COUNT, 0);
+            if (articleTermCount == articleTerms.length) articleTerms = Arrays.copyOf(articleTerms, articleTermCount * 2);
+            articleTerms[articleTermCount++] = id;
+        }
+        frequencies[base + field]++;
+        fieldLengths[field]++;
+
+        if (tokenCount == tokenTerms.length) {
+            tokenTerms = Arrays.copyOf(tokenTerms, tokenCount * 2);
+            tokenPositions = Arrays.copyOf(tokenPositions, tokenCount * 2);
+        }
+        tokenTerms[tokenCount] = id;
+        tokenPositions[tokenCount++] = position;
+        grouped = false;
+    }
+
+    // Starts the next article; term ids are kept
+    public void nextArticle() {
+        article++;
+        articleTermCount = 0;
+        tokenCount = 0;
+        grouped = false;
+        Arrays.fill(fieldLengths, 0);
+    }
+
+    // Positions of the term in the current article are positions()[positionOffset(termId), + totalFrequency(termId))
+    public int positionOffset(int termId) {
+        groupPositions();
+        return positionStart[termId];
+    }
+
+    public int[] positions() {
+        groupPositions();
+        return groupedPositions;
+    }
+
+    // Counting sort of the article's tokens by term, positions stay ascending within a term
+    private void groupPositions() {
+        if (grouped) return;
+        if (groupedPositions.length < tokenCount) groupedPositions = new int[tokenTerms.length];
+
+        int offset = 0;
+        for (int i = 0; i < articleTermCount; i++) {
+            int id = articleTerms[i];
+            positionStart[id] = offset;
+            offset += totalFrequency(id);
+        }
+        for (int i = 0; i < tokenCount; i++) {
+            groupedPositions[positionStart[tokenTerms[i]]++] = tokenPositions[i];
+        }
+        for (int i = 0; i < articleTermCount; i++) {
+            int id = articleTerms[i];
+            positionStart[id] -= totalFrequency(id);
+        }
+        grouped = true;
+    }
+
+    // Distinct terms of the current article
+    public int articleTermCount() { return articleTermCount; }
+
+    public int articleTerm(int i) { return articleTerms[i]; }
+
+    public int frequency(int termId, int field) { return frequencies[termId * Fields.COUNT + field]; }
+
+    public int totalFrequency(int termId) {
+        int total = 0;
+        for (int field = 0; field < Fields.COUNT; field++) total += frequencies[termId * Fields.COUNT + field];
+        return total;
+    }
+
+    // Tokens of the field added for the current article
+    public int fieldLength(int field) { return fieldLengths[field]; }
+
+    public String term(int termId) { return terms.get(termId); }
+
+    // Distinct terms seen so far across all articles
+    public int termCount() { return terms.size(); }
+}
@@ -0,0 +1,311 @@
+package Index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Sorted vocabulary with n-gram indexes, for prefix, wildcard and fuzzy term lookup without visiting
+ * every term.
+ *
+ * Terms are kept sorted, so a prefix is a binary-searched range. Every term is also indexed by the
+ * distinct bigrams and trigrams of its text padded with one boundary char on each side. An edit changes
+ * at most q of a term's q-grams, so a term within distance d of the query shares at least
+ * t = grams(query) - q * d of the query's distinct q-grams, and only terms reaching t get the real
+ * Levenshtein check. Such a term has to be in one of the grams(query) - t + 1 shortest gram lists, so
+ * only those are merged and the longer lists are probed per candidate by binary search. Trigram lists
+ * are shorter, bigrams take over for words too short for trigrams to bound anything. Wildcard patterns
+ * without a literal prefix need every trigram of their literal runs. Matches are returned best first:
+ * fewest edits, then highest document frequency. Immutable.
+ */
+public final class TermDictionary {
+
+    private static final char BOUNDARY = 0; // never a token char
+
+    private final String[] terms; // sorted
+    private final int[] docFrequencies; // by term id, the position in terms
+    private final int[] lengths; // by term id, so length filters don't touch the Strings
+    private final GramIndex bigrams;
+    private final GramIndex trigrams;
+
+    public TermDictionary(Iterable<Map.Entry<String, PostingList>> postings) {
+        List<Map.Entry<String, PostingList>> entries = new ArrayList<>();
+        for (Map.Entry<String, PostingList> entry : postings) entries.add(entry);
+        entries.sort(Map.Entry.comparingByKey());
+
+        this.terms = new String[entries.size()];
+        this.docFrequencies = new int[entries.size()];
+        this.lengths = new int[entries.size()];
+        for (int id = 0; id < terms.length; id++) {
+            terms[id] = entries.get(id).getKey();
+            docFrequencies[id] = entries.get(id).getValue().size();
+            lengths[id] = terms[id].length();
+        }
+        this.bigrams = new GramIndex(terms, 2);
+        this.trigrams = new GramIndex(terms, 3);
+    }
+
+    public int size() { return terms.length; }
+
+    // Terms starting with prefix
+    public List<String> prefix(String prefix, int limit) {
+        return wildcard(prefix + "*", limit);
+    }
+
+    // Terms matching pattern, where '*' stands for any run of chars and '?' for exactly one
+    public List<String> wildcard(String pattern, int limit) {
+        TopKHeap best = new TopKHeap(Math.max(1, limit));
+        int literal = 0;
+        while (literal < pattern.length() && !isWildcard(pattern.charAt(literal))) literal++;
+
+        if (literal > 0 || !trigrams.canFilter(pattern)) {
+            // The literal prefix narrows the sorted range; with none there is nothing to narrow by
+            String prefix = pattern.substring(0, literal);
+            int from = lowerBound(prefix);
+            for (int id = from; id < terms.length && terms[id].startsWith(prefix); id++) {
+                if (matches(pattern, literal, terms[id], literal)) best.offer(rank(0, id));
+            }
+        } else {
+            int[] grams = trigrams.patternGrams(pattern);
+            for (int id : trigrams.candidates(grams, grams.length, lengths, 0, Integer.MAX_VALUE)) {
+                if (matches(pattern, 0, terms[id], 0)) best.offer(rank(0, id));
+            }
+        }
+        return drain(best, limit);
+    }
+
+    // Terms within maxEdits insertions, deletions or substitutions of term, term itself included if present
+    public List<String> fuzzy(String term, int maxEdits, int limit) {
+        TopKHeap best = new TopKHeap(Math.max(1, limit));
+        int[] previous = new int[term.length() + 1];
+        int[] current = new int[term.length() + 1];
+
+        GramIndex index = trigrams.threshold(term, maxEdits) > 0 ? trigrams
+                : bigrams.threshold(term, maxEdits) > 0 ? bigrams : null;
+        if (index == null) {
+            // Too short for any gram to be guaranteed to survive the edits: check terms of a close length
+            for (int id = 0; id < terms.length; id++) {
+                if (Math.abs(lengths[id] - term.length()) > maxEdits) continue;
+                int distance = distance(term, terms[id], maxEdits, previous, current);
+                if (distance <= maxEdits) best.offer(rank(maxEdits - distance, id));
+            }
+            return drain(best, limit);
+        }
+
+        int[] grams = index.termGrams(term);
+        for (int id : index.candidates(grams, index.threshold(term, maxEdits), lengths, term.length() - maxEdits,
+                term.length() + maxEdits)) {
+            int distance = distance(term, terms[id], maxEdits, previous, current);
+            if (distance <= maxEdits) best.offer(rank(maxEdits - distance, id));
+        }
+        return drain(best, limit);
+    }
+
+    // Closeness first (higher is better), then document frequency, then term order
+    private long rank(int closeness, int id) {
+        long key = ((long) closeness << 28) | Math.min(docFrequencies[id], (1 << 28) - 1);
+        return (key << 32) | (Integer.MAX_VALUE - id);
+    }
+
+    private List<String> drain(TopKHeap best, int limit) {
+        long[] ranked = best.drainDescending();
+        List<String> matched = new ArrayList<>(Math.min(limit, ranked.length));
+        for (int i = 0; i < ranked.length && i < limit; i++) matched.add(terms[Integer.MAX_VALUE - (int) ranked[i]]);
+        return matched;
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0, high = terms.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (terms[middle].compareTo(prefix) < 0) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    static boolean isWildcard(char c) {
+        return c == '*' || c == '?';
+    }
+
+    // Glob match of pattern[p..] against text[t..]; backtracks only to the last '*'
+    private static boolean matches(String pattern, int p, String text, int t) {
+        int star = -1, starText = 0;
+        while (t < text.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == text.charAt(t))) {
+                p++;
+                t++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                starText = t;
+            } else if (star >= 0) {
+                p = star + 1;
+                t = ++starText;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') p++;
+        return p == pattern.length();
+    }
+
+    // Levenshtein distance, or maxEdits + 1 as soon as it's known to be larger; rows are scratch space
+    private static int distance(String a, String b, int maxEdits, int[] previous, int[] current) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) return maxEdits + 1;
+        for (int i = 0; i <= a.length(); i++) previous[i] = i;
+        for (int j = 1; j <= b.length(); j++) {
+            current[0] = j;
+            int rowMin = j;
+            char c = b.charAt(j - 1);
+            for (int i = 1; i <= a.length(); i++) {
+                int cost = a.charAt(i - 1) == c ? 0 : 1;
+                current[i] = Math.min(Math.min(current[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+                rowMin = Math.min(rowMin, current[i]);
+            }
+            if (rowMin > maxEdits) return maxEdits + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[a.length()];
+    }
+
+    /*
+     * Term ids by q-gram of the padded term text. A gram packs its q chars 7 bits each; token chars are
+     * ASCII, anything else shares one code, which can only add candidates, never lose one.
+     */
+    private static final class GramIndex {
+        private final int q;
+        private final int[] keys; // distinct grams, sorted
+        private final int[] starts; // ids of keys[g] are ids[starts[g], starts[g + 1])
+        private final int[] ids;
+
+        GramIndex(String[] terms, int q) {
+            this.q = q;
+
+            int total = 0;
+            for (String term : terms) total += term.length() + 3 - q;
+            long[] entries = new long[total]; // gram << 32 | id, sorted to group by gram
+            int count = 0;
+            for (int id = 0; id < terms.length; id++) {
+                String padded = BOUNDARY + terms[id] + BOUNDARY;
+                for (int i = 0; i + q <= padded.length(); i++) entries[count++] = ((long) gram(padded, i) << 32) | id;
+            }
+            Arrays.sort(entries, 0, count);
+
+            int[] keys = new int[count];
+            int[] starts = new int[count + 1];
+            int[] ids = new int[count];
+            int distinct = 0, posted = 0;
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && entries[i] == entries[i - 1]) continue; // gram repeated within one term
+                int key = (int) (entries[i] >>> 32);
+                if (distinct == 0 || keys[distinct - 1] != key) {
+                    keys[distinct] = key;
+                    starts[distinct++] = posted;
+                }
+                ids[posted++] = (int) entries[i];
+            }
+            starts[distinct] = posted;
+            this.keys = Arrays.copyOf(keys, distinct);
+            this.starts = Arrays.copyOf(starts, distinct + 1);
+            this.ids = Arrays.copyOf(ids, posted);
+        }
+
+        // Shared grams a term within maxEdits of term must have; <= 0 means the grams prove nothing
+        int threshold(String term, int maxEdits) {
+            return termGrams(term).length - q * maxEdits;
+        }
+
+        int[] termGrams(String term) {
+            return distinctGrams(BOUNDARY + term + BOUNDARY, 0, term.length() + 2);
+        }
+
+        // Whether the pattern has a literal run long enough to give a gram
+        boolean canFilter(String pattern) {
+            return patternGrams(pattern).length > 0;
+        }
+
+        // Ids of the terms with a length in [minLength, maxLength] that have at least threshold of the grams.
+        // Counts go to an array over all term ids, cheaper to allocate zeroed than hashing every posting.
+        int[] candidates(int[] grams, int threshold, int[] lengths, int minLength, int maxLength) {
+            long[] lists = new long[grams.length]; // list length << 32 | gram index, missing grams are empty
+            for (int i = 0; i < grams.length; i++) {
+                int g = Arrays.binarySearch(keys, grams[i]);
+                lists[i] = g < 0 ? -1 : ((long) (starts[g + 1] - starts[g]) << 32) | g;
+            }
+            Arrays.sort(lists);
+
+            int merged = grams.length - threshold + 1;
+            short[] counts = new short[lengths.length]; // a term has each distinct gram once, so <= grams.length
+            int[] touched = new int[64];
+            int touchedCount = 0;
+            for (int i = 0; i < merged; i++) {
+                if (lists[i] < 0) continue;
+                int g = (int) lists[i];
+                for (int p = starts[g]; p < starts[g + 1]; p++) {
+                    int id = ids[p];
+                    if (lengths[id] < minLength || lengths[id] > maxLength) continue;
+                    if (counts[id]++ == 0) {
+                        if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                        touched[touchedCount++] = id;
+                    }
+                }
+            }
+
+            int count = 0;
+            for (int t = 0; t < touchedCount; t++) {
+                int id = touched[t];
+                int shared = counts[id];
+                for (int i = merged; i < lists.length && shared < threshold; i++) {
+                    if (shared + lists.length - i < threshold) break; // can't get there any more
+                    int g = (int) lists[i];
+                    if (lists[i] >= 0 && Arrays.binarySearch(ids, starts[g], starts[g + 1], id) >= 0) shared++;
+                }
+                if (shared >= threshold) touched[count++] = id;
+            }
+            return Arrays.copyOf(touched, count);
+        }
+
+        // Grams of the literal runs of the padded pattern, e.g. "*tion" gives "tio", "ion", "on" + BOUNDARY
+        int[] patternGrams(String pattern) {
+            String padded = BOUNDARY + pattern + BOUNDARY;
+            int[] grams = new int[0];
+            int run = 0;
+            for (int i = 0; i <= padded.length(); i++) {
+                if (i < padded.length() && !isWildcard(padded.charAt(i))) continue;
+                if (i - run >= q) {
+                    int[] more = distinctGrams(padded, run, i);
+                    int[] merged = Arrays.copyOf(grams, grams.length + more.length);
+                    System.arraycopy(more, 0, merged, grams.length, more.length);
+                    grams = merged;
+                }
+                run = i + 1;
+            }
+            Arrays.sort(grams);
+            int distinct = 0;
+            for (int i = 0; i < grams.length; i++) if (i == 0 || grams[i] != grams[i - 1]) grams[distinct++] = grams[i];
+            return Arrays.copyOf(grams, distinct);
+        }
+
+        private int[] distinctGrams(String text, int from, int to) {
+            if (to - from < q) return new int[0];
+            int[] grams = new int[to - from - q + 1];
+            for (int i = 0; i < grams.length; i++) grams[i] = gram(text, from + i);
+            Arrays.sort(grams);
+            int distinct = 0;
+            for (int i = 0; i < grams.length; i++) if (i == 0 || grams[i] != grams[i - 1]) grams[distinct++] = grams[i];
+            return Arrays.copyOf(grams, distinct);
+        }
+
+        private int gram(String text, int at) {
+            int gram = 0;
+            for (int i = at; i < at + q; i++) {
+                char c = text.charAt(i);
+                gram = (gram << 7) | (c < 128 ? c : 127);
+            }
+            return gram;
+        }
+    }
+}
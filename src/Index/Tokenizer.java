@@ -0,0 +1,110 @@
+package Index;
+
+import java.util.Arrays;
+
+/*
+ * Single-pass, table-driven tokenizer shared by indexing and query normalization.
+ *
+ * A token is a maximal run of token chars, lowercased. By default the token chars are ASCII letters,
+ * digits and '_', the same words the old \b\w+\b regex matched; a delimiter set (delimiters.txt) can only
+ * take chars away from that. Tokens are read through a reused CharSequence view, so tokenizing a text
+ * allocates nothing per token.
+ */
+public final class Tokenizer {
+
+    public static final Tokenizer WORD_CHARS = new Tokenizer("");
+
+    private final boolean[] tokenChars = new boolean[128]; // anything outside ASCII is a delimiter
+
+    public Tokenizer(CharSequence delimiters) {
+        for (char c = 'a'; c <= 'z'; c++) tokenChars[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) tokenChars[c] = true;
+        for (char c = '0'; c <= '9'; c++) tokenChars[c] = true;
+        tokenChars['_'] = true;
+
+        for (int i = 0; i < delimiters.length(); i++) {
+            char c = delimiters.charAt(i);
+            if (c < tokenChars.length) tokenChars[c] = false;
+        }
+    }
+
+    public boolean isTokenChar(char c) {
+        return c < tokenChars.length && tokenChars[c];
+    }
+
+    // FNV-1a over the token chars; equal for tokenizers that split every text the same way
+    public long fingerprint() {
+        long h = 0xCBF29CE484222325L;
+        for (char c = 0; c < tokenChars.length; c++) {
+            if (tokenChars[c]) h = (h ^ c) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    // A cursor is single-threaded; create one per thread
+    public Tokens tokens() {
+        return new Tokens(this);
+    }
+
+    // Cursor over one text at a time. Between next() calls it is a CharSequence view of the current token.
+    public static final class Tokens implements CharSequence {
+        private final Tokenizer tokenizer;
+        private CharSequence text = "";
+        private int position;
+        private char[] buffer = new char[32];
+        private int length;
+
+        private Tokens(Tokenizer tokenizer) {
+            this.tokenizer = tokenizer;
+        }
+
+        public Tokens reset(CharSequence text) {
+            this.text = text == null ? "" : text;
+            this.position = 0;
+            this.length = 0;
+            return this;
+        }
+
+        public boolean next() {
+            CharSequence t = text;
+            int n = t.length();
+            int i = position;
+            while (i < n && !tokenizer.isTokenChar(t.charAt(i))) i++;
+
+            int len = 0;
+            for (; i < n; i++) {
+                char c = t.charAt(i);
+                if (!tokenizer.isTokenChar(c)) break;
+                if (len == buffer.length) buffer = Arrays.copyOf(buffer, len * 2);
+                buffer[len++] = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+            }
+
+            position = i;
+            length = len;
+            return len > 0;
+        }
+
+        // Current token is buffer()[0, length()); valid until the next call to next()
+        public char[] buffer() { return buffer; }
+
+        @Override
+        public int length() { return length; }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+            return buffer[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(buffer, start, end - start);
+        }
+
+        // Copies the current token; the only place a token allocates
+        @Override
+        public String toString() {
+            return new String(buffer, 0, length);
+        }
+    }
+}
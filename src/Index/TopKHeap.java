@@ -0,0 +1,72 @@
+package Index;
+
+/*
+ * Bounded min-heap keeping the K largest longs offered to it.
+ *
+ * Search results are packed as (score << 32 | tie-breaker), so a larger long is a better hit and the
+ * root is always the weakest hit still kept. Offering n values costs O(n log K) instead of sorting all n.
+ */
+public class TopKHeap {
+
+    private long[] heap;
+    private int size;
+    private int capacity;
+
+    public TopKHeap(int capacity) {
+        reset(capacity);
+    }
+
+    // Empties the heap for a new query, reusing the array when it's big enough
+    public void reset(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive.");
+        if (heap == null || heap.length < capacity) heap = new long[capacity];
+        this.capacity = capacity;
+        this.size = 0;
+    }
+
+    public int size() { return size; }
+
+    // Smallest value kept; a new value has to beat this once the heap is full
+    public long min() { return heap[0]; }
+
+    public boolean isFull() { return size == capacity; }
+
+    public void offer(long value) {
+        if (size < capacity) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= value) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        } else if (value > heap[0]) {
+            siftDown(value);
+        }
+    }
+
+    private void siftDown(long value) {
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (value <= heap[child]) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+
+    // Empties the heap into a new array, largest first
+    public long[] drainDescending() {
+        long[] result = new long[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            long last = heap[--size];
+            if (size > 0) siftDown(last);
+        }
+        return result;
+    }
+}
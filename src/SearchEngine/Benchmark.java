@@ -0,0 +1,83 @@
+package SearchEngine;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+ * Minimal benchmark harness: warmup rounds, then measured rounds timed individually in nanoseconds.
+ *
+ * Operations return a value that is folded into a sink, so the JIT can't drop the measured work.
+ * Output printed by the measured code is discarded; callers format the Result afterwards.
+ */
+public class Benchmark {
+
+    public interface Operation {
+        long run(int iteration);
+    }
+
+    private static volatile long sink;
+
+    public static Result measure(String name, int warmupIterations, int measuredIterations, int opsPerIteration,
+                                 Operation operation) {
+        long blackhole = 0;
+        long[] samples = new long[measuredIterations];
+
+        // Anything the measured code prints is discarded, so console I/O never shows up in the timings
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                blackhole += operation.run(i);
+            }
+
+            for (int i = 0; i < measuredIterations; i++) {
+                long start = System.nanoTime();
+                blackhole += operation.run(i);
+                samples[i] = System.nanoTime() - start;
+            }
+        } finally {
+            System.setOut(console);
+        }
+        sink += blackhole;
+
+        return new Result(name, samples, opsPerIteration);
+    }
+
+    public static class Result {
+        private final String name;
+        private final long[] samples; // sorted nanoseconds per iteration
+        private final int opsPerIteration;
+
+        Result(String name, long[] samples, int opsPerIteration) {
+            this.name = name;
+            this.samples = samples.clone();
+            this.opsPerIteration = Math.max(1, opsPerIteration);
+            Arrays.sort(this.samples);
+        }
+
+        public String getName() { return name; }
+
+        public double meanNanos() {
+            long total = 0;
+            for (long sample : samples) total += sample;
+            return samples.length == 0 ? 0 : (double) total / samples.length;
+        }
+
+        public long percentileNanos(double percentile) {
+            if (samples.length == 0) return 0;
+            int index = (int) Math.ceil(percentile / 100.0 * samples.length) - 1;
+            return samples[Math.max(0, Math.min(samples.length - 1, index))];
+        }
+
+        public double nanosPerOp() { return meanNanos() / opsPerIteration; }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-48s mean %12.1f ns/op | p50 %10.3f ms | p90 %10.3f ms | p99 %10.3f ms | max %10.3f ms",
+                    name, nanosPerOp(), percentileNanos(50) / 1e6, percentileNanos(90) / 1e6,
+                    percentileNanos(99) / 1e6, percentileNanos(100) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package SearchEngine;
+
+import Data.ArticleLoader;
+import HashMaps.HashMapCustom;
+import HashMaps.StringIntHashMap;
+import Index.SearchResult;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class BenchmarkSuite {
+    public static void main(String[] args) throws FileNotFoundException {
+
+        double[] loadFactors = {0.5, 0.75, 0.9};
+        int vocabularyLimit = 10000; // SSF clusters badly, keep its runs short
+        int queryPasses = 5;
+
+        // Setup, not measured
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        ArticleLoader.loadArticles("src/Data/CNN_Articels.csv");
+        ArticleLoader.indexArticles();
+
+        String[] vocabulary = vocabulary(vocabularyLimit);
+        String[] articleIds = articleIds(vocabularyLimit);
+        List<String> queries = queries("src/Data/search.txt");
+
+        List<Benchmark.Result> results = new ArrayList<>();
+        results.addAll(hashMapBenchmarks("vocabulary", vocabulary, loadFactors));
+        results.addAll(hashMapBenchmarks("article ids", articleIds, loadFactors));
+        results.add(indexingBenchmark());
+        long cacheBudget = ArticleLoader.getQueryCacheBudget();
+        ArticleLoader.setQueryCacheBudget(0); // measure the uncached query path
+        results.add(queryBenchmark(queries, queryPasses, 0));
+        results.add(queryBenchmark(queries, queryPasses, 25));
+        ArticleLoader.setQueryCacheBudget(cacheBudget);
+        results.add(queryBenchmark(queries, queryPasses, 25));
+
+        System.out.println("\n---Benchmark Results---");
+        for (Benchmark.Result result : results) {
+            System.out.println(result);
+        }
+    }
+
+    // put of every key into an empty map, and get of every key, per hash function, collision type and load factor
+    public static List<Benchmark.Result> hashMapBenchmarks(String keyName, String[] keys, double[] loadFactors) {
+        List<Benchmark.Result> results = new ArrayList<>();
+        Integer value = 1;
+
+        for (HashMapCustom.HashFunctionType hash : HashMapCustom.HashFunctionType.values()) {
+            for (HashMapCustom.CollisionType collision : HashMapCustom.CollisionType.values()) {
+                for (double loadFactor : loadFactors) {
+                    String name = keyName + " " + hash + "/" + collision + "/" + loadFactor;
+
+                    results.add(Benchmark.measure(name + " put", 5, 10, keys.length, iteration -> {
+                        HashMapCustom<String, Integer> map = new HashMapCustom<>(101, loadFactor, hash, collision);
+                        for (String key : keys) map.put(key, value);
+                        return map.size();
+                    }));
+
+                    HashMapCustom<String, Integer> filled = new HashMapCustom<>(101, loadFactor, hash, collision);
+                    for (String key : keys) filled.put(key, value);
+
+                    results.add(Benchmark.measure(name + " get", 5, 10, keys.length, iteration -> {
+                        long found = 0;
+                        for (String key : keys) found += filled.get(key);
+                        return found;
+                    }));
+                }
+            }
+        }
+        return results;
+    }
+
+    public static Benchmark.Result indexingBenchmark() {
+        return Benchmark.measure("indexArticles", 2, 5, 1, iteration -> ArticleLoader.indexArticles());
+    }
+
+    // Latency of every query in the workload, without printing the results; k <= 0 ranks every hit
+    public static Benchmark.Result queryBenchmark(List<String> queries, int passes, int k) {
+        int warmup = queries.size();
+        String name = (k <= 0 ? "search per query (all hits" : "search per query (top " + k)
+                + (ArticleLoader.getQueryCache().isEnabled() ? ", cached)" : ")");
+        SearchEngine searchEngine = new SearchEngine();
+        SearchResult result = new SearchResult();
+        return Benchmark.measure(name, warmup, queries.size() * passes, 1,
+                iteration -> searchEngine.search(queries.get(iteration % queries.size()), k, result).size());
+    }
+
+    static String[] vocabulary(int limit) {
+        StringIntHashMap frequencies = ArticleLoader.getWordFrequencyMap();
+        List<String> words = new ArrayList<>();
+        for (int slot = 0; slot < frequencies.capacity(); slot++) {
+            if (frequencies.keyAt(slot) != null) words.add(frequencies.keyAt(slot));
+        }
+        return sample(words, limit);
+    }
+
+    static String[] articleIds(int limit) {
+        List<String> ids = new ArrayList<>();
+        for (int docId = 0; docId < ArticleLoader.getDocumentCount(); docId++) {
+            ids.add(ArticleLoader.getArticle(docId).getId());
+        }
+        return sample(ids, limit);
+    }
+
+    private static String[] sample(List<String> keys, int limit) {
+        Collections.shuffle(keys, new Random(42));
+        return keys.subList(0, Math.min(limit, keys.size())).toArray(new String[0]);
+    }
+
+    static List<String> queries(String filename) throws FileNotFoundException {
+        List<String> queries = new ArrayList<>();
+        try (Scanner scanner = new Scanner(new File(filename))) {
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                if (!line.trim().isEmpty()) queries.add(line);
+            }
+        }
+        return queries;
+    }
+}
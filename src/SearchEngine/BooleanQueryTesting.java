@@ -0,0 +1,125 @@
+package SearchEngine;
+
+import Data.Article;
+import Data.ArticleLoader;
+import Data.IndexSnapshot;
+import Index.SearchResult;
+import Index.Tokenizer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class BooleanQueryTesting {
+    public static void main(String[] args) {
+
+        int queriesPerSize = 200;
+        int passes = 5;
+
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        ArticleLoader.loadArticles("src/Data/CNN_Articels.csv");
+        ArticleLoader.indexArticles();
+
+        System.out.println(BooleanQueryResults(queriesPerSize, passes));
+    }
+
+    // Latency of 2-5 term conjunctions against the same terms as a plain (OR) query, plus 2-3 word phrases.
+    // Terms are drawn from one article so every query has hits; the query cache is off.
+    public static String BooleanQueryResults(int queriesPerSize, int passes) {
+        Random random = new Random(42);
+        SearchEngine searchEngine = new SearchEngine();
+        long cacheBudget = ArticleLoader.getQueryCacheBudget();
+        ArticleLoader.setQueryCacheBudget(0);
+
+        StringBuilder result = new StringBuilder(String.format(Locale.ROOT, "%-16s %10s %10s %10s %10s%n",
+                "query", "p50 ms", "p99 ms", "mean ms", "avg hits"));
+        for (int termCount = 2; termCount <= 5; termCount++) {
+            List<List<String>> termSets = new ArrayList<>();
+            while (termSets.size() < queriesPerSize) {
+                List<String> terms = sampleTerms(random, termCount);
+                if (terms != null) termSets.add(terms);
+            }
+
+            List<String> conjunctions = new ArrayList<>();
+            List<String> disjunctions = new ArrayList<>();
+            for (List<String> terms : termSets) {
+                conjunctions.add(String.join(" AND ", terms));
+                disjunctions.add(String.join(" ", terms));
+            }
+            result.append(row(termCount + " terms AND", searchEngine, conjunctions, passes));
+            result.append(row(termCount + " terms OR", searchEngine, disjunctions, passes));
+        }
+
+        for (int phraseLength = 2; phraseLength <= 3; phraseLength++) {
+            List<String> phrases = new ArrayList<>();
+            while (phrases.size() < queriesPerSize) {
+                String phrase = samplePhrase(random, phraseLength);
+                if (phrase != null) phrases.add(phrase);
+            }
+            result.append(row(phraseLength + " word phrase", searchEngine, phrases, passes));
+        }
+
+        ArticleLoader.setQueryCacheBudget(cacheBudget);
+        return result.toString();
+    }
+
+    private static String row(String name, SearchEngine searchEngine, List<String> queries, int passes) {
+        SearchResult result = new SearchResult();
+        long hits = 0;
+        for (String query : queries) hits += searchEngine.search(query, 0, result).getTotalHits();
+
+        Benchmark.Result latency = Benchmark.measure(name, queries.size(), queries.size() * passes, 1,
+                iteration -> searchEngine.search(queries.get(iteration % queries.size()), SearchEngine.RESULTS_SHOWN,
+                        result).getTotalHits());
+        return String.format(Locale.ROOT, "%-16s %10.3f %10.3f %10.3f %10d%n", name, latency.percentileNanos(50) / 1e6,
+                latency.percentileNanos(99) / 1e6, latency.meanNanos() / 1e6, hits / queries.size());
+    }
+
+    // Distinct indexed words of one random article, null if it hasn't enough of them
+    private static List<String> sampleTerms(Random random, int count) {
+        List<String> words = new ArrayList<>(indexedWords(randomArticle(random)));
+        if (words.size() < count) return null;
+
+        Set<String> terms = new LinkedHashSet<>();
+        while (terms.size() < count) terms.add(words.get(random.nextInt(words.size())));
+        return new ArrayList<>(terms);
+    }
+
+    private static String samplePhrase(Random random, int length) {
+        List<String> words = tokens(randomArticle(random).getContent());
+        if (words.size() < length) return null;
+
+        int start = random.nextInt(words.size() - length + 1);
+        return "\"" + String.join(" ", words.subList(start, start + length)) + "\"";
+    }
+
+    private static Article randomArticle(Random random) {
+        IndexSnapshot snapshot = ArticleLoader.getSnapshot();
+        Article article = null;
+        while (article == null) article = snapshot.getArticle(random.nextInt(snapshot.getDocumentCount()));
+        return article;
+    }
+
+    private static Set<String> indexedWords(Article article) {
+        IndexSnapshot snapshot = ArticleLoader.getSnapshot();
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : tokens(article.getContent())) {
+            if (!snapshot.isStopWord(word)) words.add(word);
+        }
+        return words;
+    }
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        Tokenizer.Tokens cursor = ArticleLoader.getSnapshot().getTokenizer().tokens().reset(text);
+        while (cursor.next()) tokens.add(cursor.toString());
+        return tokens;
+    }
+}
@@ -0,0 +1,80 @@
+package SearchEngine;
+
+import Data.ArticleLoader;
+import HashMaps.HashMapCustom;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class BulkLoadTesting {
+    public static void main(String[] args) {
+
+        double loadFactor = 0.8;
+        int keyLimit = 10000; // SSF clusters badly, keep its runs short
+
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        ArticleLoader.loadArticles("src/Data/CNN_Articels.csv");
+        ArticleLoader.indexArticles();
+
+        System.out.println(BulkLoadResults("article ids", BenchmarkSuite.articleIds(keyLimit), loadFactor));
+        System.out.println(BulkLoadResults("vocabulary", BenchmarkSuite.vocabulary(keyLimit), loadFactor));
+    }
+
+    // Building a map of every key for every hash function and collision type: put after put from capacity
+    // 101 as the loader does, put into a map created withExpectedSize, and putAll into a map of capacity 101.
+    // Times are medians per key, so a GC pause in one build doesn't skew them; resizes and collisions are
+    // those of one build.
+    public static String BulkLoadResults(String keyName, String[] keys, double loadFactor) {
+        Integer value = 1;
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        for (String key : keys) entries.add(new AbstractMap.SimpleEntry<>(key, value));
+
+        StringBuilder result = new StringBuilder("---" + keyName + ", " + keys.length + " keys, load factor " + loadFactor
+                + "---\nHash Function | Collision Handling | grow ns/op | presized ns/op | putAll ns/op"
+                + " | grow resizes | presized resizes | grow collisions | presized collisions\n");
+
+        for (HashMapCustom.HashFunctionType hash : HashMapCustom.HashFunctionType.values()) {
+            for (HashMapCustom.CollisionType collision : HashMapCustom.CollisionType.values()) {
+                Benchmark.Result grow = Benchmark.measure("grow", 5, 10, keys.length, iteration -> {
+                    HashMapCustom<String, Integer> map = new HashMapCustom<>(101, loadFactor, hash, collision);
+                    for (String key : keys) map.put(key, value);
+                    return map.size();
+                });
+                Benchmark.Result presized = Benchmark.measure("presized", 5, 10, keys.length, iteration -> {
+                    HashMapCustom<String, Integer> map = HashMapCustom.withExpectedSize(keys.length, loadFactor, hash, collision);
+                    for (String key : keys) map.put(key, value);
+                    return map.size();
+                });
+                Benchmark.Result putAll = Benchmark.measure("putAll", 5, 10, keys.length, iteration -> {
+                    HashMapCustom<String, Integer> map = new HashMapCustom<>(101, loadFactor, hash, collision);
+                    map.putAll(entries);
+                    return map.size();
+                });
+
+                HashMapCustom<String, Integer> grown = new HashMapCustom<>(101, loadFactor, hash, collision);
+                for (String key : keys) grown.put(key, value);
+                HashMapCustom<String, Integer> sized = HashMapCustom.withExpectedSize(keys.length, loadFactor, hash, collision);
+                for (String key : keys) sized.put(key, value);
+
+                result.append(hash).append(" | ").append(collision).append(" | ")
+                        .append(String.format(Locale.ROOT, "%.1f | %.1f | %.1f", medianPerKey(grow, keys), medianPerKey(presized, keys),
+                                medianPerKey(putAll, keys)))
+                        .append(" | ").append(grown.getResizeCount()).append(" | ").append(sized.getResizeCount())
+                        .append(" | ").append(grown.getCollisionCount()).append(" | ").append(sized.getCollisionCount())
+                        .append("\n");
+            }
+        }
+        return result.toString();
+    }
+
+    private static double medianPerKey(Benchmark.Result result, String[] keys) {
+        return (double) result.percentileNanos(50) / keys.length;
+    }
+}
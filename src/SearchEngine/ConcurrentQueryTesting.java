@@ -0,0 +1,144 @@
+package SearchEngine;
+
+import Data.ArticleLoader;
+import Data.IndexSnapshot;
+import Index.SearchResult;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class ConcurrentQueryTesting {
+    public static void main(String[] args) throws FileNotFoundException {
+
+        int[] threadCounts = {1, 2, 4, 8, 16};
+        int queriesPerThread = 2000;
+
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        ArticleLoader.loadArticles("src/Data/CNN_Articels.csv");
+        ArticleLoader.indexArticles();
+
+        String results = ConcurrentQueryResults(BenchmarkSuite.queries("src/Data/search.txt"), threadCounts, queriesPerThread);
+
+        System.out.println(results);
+    }
+
+    // Every thread runs queriesPerThread queries against one shared snapshot, first with the query cache off,
+    // so each query does the full postings walk, then with the caller's cache budget, so repeated queries
+    // share the cache. Hits are checked against a single-threaded run.
+    public static String ConcurrentQueryResults(List<String> queries, int[] threadCounts, int queriesPerThread) {
+
+        IndexSnapshot snapshot = ArticleLoader.getSnapshot();
+        SearchEngine searchEngine = new SearchEngine(snapshot);
+        int k = SearchEngine.RESULTS_SHOWN;
+
+        long cacheBudget = ArticleLoader.getQueryCacheBudget();
+        ArticleLoader.setQueryCacheBudget(0);
+
+        // Reference answers, also warms up the query path
+        int[] expectedHits = new int[queries.size()];
+        SearchResult reference = new SearchResult();
+        for (int i = 0; i < queries.size(); i++) {
+            expectedHits[i] = checksum(searchEngine.search(queries.get(i), k, reference));
+        }
+
+        StringBuilder result = new StringBuilder("Cache | Threads | QPS | p50 | p99 | Mismatches\n");
+        for (boolean cached : new boolean[] {false, true}) {
+            ArticleLoader.setQueryCacheBudget(cached ? cacheBudget : 0);
+            for (int threads : threadCounts) {
+                List<QueryWorker> workers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    workers.add(new QueryWorker(searchEngine, queries, expectedHits, k, t, queriesPerThread));
+                }
+
+                ExecutorService pool = Executors.newFixedThreadPool(threads);
+                long start = System.nanoTime();
+                try {
+                    for (Future<QueryWorker> future : pool.invokeAll(workers)) {
+                        future.get();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return "ERROR: Query run interrupted.";
+                } catch (ExecutionException e) {
+                    return "ERROR: Query run failed: " + e.getCause();
+                } finally {
+                    pool.shutdown();
+                }
+                long wallNanos = System.nanoTime() - start;
+
+                long[] latencies = new long[threads * queriesPerThread];
+                int mismatches = 0;
+                for (int t = 0; t < threads; t++) {
+                    QueryWorker worker = workers.get(t);
+                    System.arraycopy(worker.latencies, 0, latencies, t * queriesPerThread, queriesPerThread);
+                    mismatches += worker.mismatches;
+                }
+
+                Benchmark.Result latency = new Benchmark.Result(threads + " threads", latencies, 1);
+                double qps = latencies.length / (wallNanos / 1e9);
+
+                result.append(cached ? "on" : "off").append(" | ").append(threads).append(" | ")
+                        .append(String.format(Locale.ROOT, "%.0f", qps)).append(" | ")
+                        .append(String.format(Locale.ROOT, "%.3f", latency.percentileNanos(50) / 1e6)).append("ms | ")
+                        .append(String.format(Locale.ROOT, "%.3f", latency.percentileNanos(99) / 1e6)).append("ms | ")
+                        .append(mismatches).append("\n");
+            }
+        }
+
+        ArticleLoader.setQueryCacheBudget(cacheBudget);
+        return result.toString();
+    }
+
+    private static class QueryWorker implements Callable<QueryWorker> {
+        private final SearchEngine searchEngine;
+        private final List<String> queries;
+        private final int[] expectedHits;
+        private final int k;
+        private final int offset;
+        private final long[] latencies;
+        private int mismatches;
+
+        QueryWorker(SearchEngine searchEngine, List<String> queries, int[] expectedHits, int k, int offset,
+                    int queryCount) {
+            this.searchEngine = searchEngine;
+            this.queries = queries;
+            this.expectedHits = expectedHits;
+            this.k = k;
+            this.offset = offset;
+            this.latencies = new long[queryCount];
+        }
+
+        @Override
+        public QueryWorker call() {
+            SearchResult result = new SearchResult(); // one per thread
+            for (int i = 0; i < latencies.length; i++) {
+                int query = (offset + i) % queries.size();
+                long start = System.nanoTime();
+                searchEngine.search(queries.get(query), k, result);
+                latencies[i] = System.nanoTime() - start;
+                if (checksum(result) != expectedHits[query]) mismatches++;
+            }
+            return this;
+        }
+    }
+
+    private static int checksum(SearchResult result) {
+        int checksum = result.getTotalHits();
+        for (int rank = 0; rank < result.size(); rank++) {
+            checksum = 31 * checksum + result.getDocId(rank);
+            checksum = 31 * checksum + result.getScore(rank);
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,80 @@
+package SearchEngine;
+
+import Data.CsvReader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Scanner;
+
+public class CsvLoadTesting {
+    public static void main(String[] args) throws IOException {
+
+        String filename = "src/Data/CNN_Articels.csv";
+        int rounds = 5;
+
+        String results = CsvLoadResults(filename, rounds);
+
+        System.out.println(results);
+    }
+
+    // Parses the file with the old Scanner + regex split loader and with CsvReader, best of N rounds
+    public static String CsvLoadResults(String filename, int rounds) throws IOException {
+        double megabytes = new File(filename).length() / (1024.0 * 1024.0);
+
+        long legacyBest = Long.MAX_VALUE;
+        long streamingBest = Long.MAX_VALUE;
+        int legacyRecords = 0;
+        int streamingRecords = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            legacyRecords = parseLegacy(filename);
+            legacyBest = Math.min(legacyBest, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            streamingRecords = parseStreaming(filename);
+            streamingBest = Math.min(streamingBest, System.nanoTime() - start);
+        }
+
+        return "File Size: " + String.format(Locale.ROOT, "%.1f", megabytes) + "MB\n" +
+               "Scanner + Regex Split: " + legacyRecords + " records, " + throughput(megabytes, legacyBest) + "MB/s\n" +
+               "CsvReader: " + streamingRecords + " records, " + throughput(megabytes, streamingBest) + "MB/s";
+    }
+
+    private static int parseLegacy(String filename) throws FileNotFoundException {
+        String csvSplitRegex = ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)";
+        int records = 0;
+
+        try (Scanner fileScanner = new Scanner(new File(filename), "UTF-8")) {
+            if (fileScanner.hasNextLine()) fileScanner.nextLine(); // header
+
+            while (fileScanner.hasNextLine()) {
+                String[] columns = fileScanner.nextLine().split(csvSplitRegex, -1);
+                if (columns.length >= 11) records++;
+            }
+        }
+        return records;
+    }
+
+    private static int parseStreaming(String filename) throws IOException {
+        int records = 0;
+
+        try (CsvReader csv = new CsvReader(filename)) {
+            csv.nextRecord(); // header
+
+            while (csv.nextRecord()) {
+                if (csv.fieldCount() >= 11) {
+                    csv.field(10); // materialize the article text like loadArticles does
+                    records++;
+                }
+            }
+        }
+        return records;
+    }
+
+    private static String throughput(double megabytes, long nanos) {
+        return String.format(Locale.ROOT, "%.1f", megabytes / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,81 @@
+package SearchEngine;
+
+import Data.ArticleLoader;
+import HashMaps.HashMapCustom;
+
+import java.util.Locale;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class HashDistributionTesting {
+    public static void main(String[] args) {
+
+        double[] loadFactors = {0.5, 0.75, 0.9};
+        int keyLimit = 10000; // SSF clusters badly, keep its runs short
+
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        ArticleLoader.loadArticles("src/Data/CNN_Articels.csv");
+        ArticleLoader.indexArticles();
+
+        System.out.println(HashDistributionResults("vocabulary", BenchmarkSuite.vocabulary(keyLimit), loadFactors));
+        System.out.println(HashDistributionResults("article ids", BenchmarkSuite.articleIds(keyLimit), loadFactors));
+    }
+
+    // Throughput plus how evenly each hash function spreads the keys: probe length histogram and
+    // variance of keys per home slot, for every hash function, collision type and load factor
+    public static String HashDistributionResults(String keyName, String[] keys, double[] loadFactors) {
+        StringBuilder result = new StringBuilder("---" + keyName + " (" + keys.length + " keys)---\n");
+        result.append(String.format(Locale.ROOT, "%-28s %10s %10s %10s %6s %9s   %s%n", "hash/collision/alpha", "put ns/op",
+                "get ns/op", "mean probe", "max", "occ. var", "probes 1 | 2 | 3-4 | 5-8 | 9-16 | 17+"));
+        Integer value = 1;
+
+        for (HashMapCustom.HashFunctionType hash : HashMapCustom.HashFunctionType.values()) {
+            for (HashMapCustom.CollisionType collision : HashMapCustom.CollisionType.values()) {
+                for (double loadFactor : loadFactors) {
+                    Benchmark.Result put = Benchmark.measure("put", 10, 20, keys.length, iteration -> {
+                        HashMapCustom<String, Integer> map = new HashMapCustom<>(101, loadFactor, hash, collision);
+                        for (String key : keys) map.put(key, value);
+                        return map.size();
+                    });
+
+                    // Sized so the table sits right at the load factor instead of just after a doubling
+                    HashMapCustom<String, Integer> filled = new HashMapCustom<>((int) (keys.length / loadFactor) + 1,
+                            loadFactor, hash, collision);
+                    for (String key : keys) filled.put(key, value);
+
+                    Benchmark.Result get = Benchmark.measure("get", 10, 20, keys.length, iteration -> {
+                        long found = 0;
+                        for (String key : keys) found += filled.get(key);
+                        return found;
+                    });
+
+                    result.append(String.format(Locale.ROOT, "%-28s %10.1f %10.1f %10.2f %6d %9.3f   %s%n",
+                            hash + "/" + collision + "/" + loadFactor, put.nanosPerOp(), get.nanosPerOp(),
+                            filled.getMeanProbeLength(), filled.getMaxProbeLength(),
+                            filled.getBucketOccupancyVariance(), histogram(filled.getProbeLengthHistogram(), keys.length)));
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    // Percent of keys per power-of-two probe length bucket
+    private static String histogram(int[] probeLengths, int keyCount) {
+        int[] bounds = {1, 2, 4, 8, 16, Integer.MAX_VALUE};
+        long[] buckets = new long[bounds.length];
+        for (int length = 1; length < probeLengths.length; length++) {
+            int bucket = 0;
+            while (length > bounds[bucket]) bucket++;
+            buckets[bucket] += probeLengths[length];
+        }
+
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < buckets.length; i++) {
+            if (i > 0) line.append(" | ");
+            line.append(String.format(Locale.ROOT, "%5.1f%%", 100.0 * buckets[i] / Math.max(1, keyCount)));
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package SearchEngine;
+
+import HashMaps.HashMapCustom;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+public class HashMapAllocationTesting {
+    public static void main(String[] args) {
+
+        int keyCount = 5000;
+        int operations = 500000;
+
+        String results = HashMapAllocationResults(keyCount, operations);
+
+        System.out.println(results);
+    }
+
+    // Bytes allocated per get / put-on-existing-key, for every hash function and collision type
+    public static String HashMapAllocationResults(int keyCount, int operations) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        String[] keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) keys[i] = "Word" + i; // mixed case, so lowercasing has work to do
+        Integer value = 1000; // outside the Integer cache on purpose, allocated once here
+
+        StringBuilder result = new StringBuilder("Hash Function | Collision Handling | get B/op | put B/op\n");
+
+        for (HashMapCustom.HashFunctionType hash : HashMapCustom.HashFunctionType.values()) {
+            for (HashMapCustom.CollisionType collision : HashMapCustom.CollisionType.values()) {
+                HashMapCustom<String, Integer> map = new HashMapCustom<>(keyCount * 2, 0.5, hash, collision);
+                for (String key : keys) map.put(key, value);
+
+                long sink = 0;
+                // warm up so the JIT settles before measuring
+                for (int i = 0; i < operations; i++) sink += map.get(keys[i % keyCount]);
+
+                long before = threads.getThreadAllocatedBytes(threadId);
+                for (int i = 0; i < operations; i++) sink += map.get(keys[i % keyCount]);
+                long getBytes = threads.getThreadAllocatedBytes(threadId) - before;
+
+                before = threads.getThreadAllocatedBytes(threadId);
+                for (int i = 0; i < operations; i++) map.put(keys[i % keyCount], value);
+                long putBytes = threads.getThreadAllocatedBytes(threadId) - before;
+
+                result.append(hash).append(" | ").append(collision).append(" | ")
+                        .append(String.format(Locale.ROOT, "%.3f", (double) getBytes / operations)).append(" | ")
+                        .append(String.format(Locale.ROOT, "%.3f", (double) putBytes / operations))
+                        .append(sink == 42 ? " " : "").append("\n");
+            }
+        }
+
+        return result.toString();
+    }
+}
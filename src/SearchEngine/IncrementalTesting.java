@@ -0,0 +1,130 @@
+package SearchEngine;
+
+import Data.Article;
+import Data.ArticleLoader;
+import Data.IndexSnapshot;
+import Data.ShardedIndex;
+import Index.SearchResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class IncrementalTesting {
+    public static void main(String[] args) throws IOException {
+
+        double[] updatedShares = {0.2, 1.0};
+        int batchSize = 100;
+
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        ArticleLoader.loadArticles("src/Data/CNN_Articels.csv");
+        ArticleLoader.indexArticles();
+
+        System.out.println(IncrementalResults(BenchmarkSuite.queries("src/Data/search.txt"), updatedShares, batchSize));
+    }
+
+    // Re-adds a growing share of the articles one by one through updateArticle, then all of them again in
+    // batches through updateArticles, then compacts. After each step every query is checked against a full
+    // rebuild of the same articles (a single shard) under both scorings. Counts the top 25s whose hits, scores
+    // or labels differ and the hits scored below 0; the query cache is off.
+    public static String IncrementalResults(List<String> queries, double[] updatedShares, int batchSize)
+            throws IOException {
+        long cacheBudget = ArticleLoader.getQueryCacheBudget();
+        ArticleLoader.setQueryCacheBudget(0);
+        ArticleLoader.Scoring scoring = ArticleLoader.getScoring();
+
+        IndexSnapshot loaded = ArticleLoader.getSnapshot();
+        List<Article> articles = new ArrayList<>();
+        for (int docId = 0; docId < loaded.getDocumentCount(); docId++) {
+            if (loaded.getArticle(docId) != null) articles.add(loaded.getArticle(docId));
+        }
+        Collections.shuffle(articles, new Random(42));
+
+        StringBuilder result = new StringBuilder(String.format(Locale.ROOT, "%-16s %12s %-12s %11s %10s%n",
+                "state", "ms/update", "scoring", "mismatches", "negative"));
+        int updated = 0;
+        for (double share : updatedShares) {
+            int target = (int) Math.round(share * articles.size());
+            int from = updated;
+            long start = System.nanoTime();
+            for (; updated < target; updated++) {
+                Article article = articles.get(updated);
+                ArticleLoader.updateArticle(new Article(article.getId(), article.getHeadline(), article.getContent(),
+                        article.getSummary()));
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / Math.max(1, target - from);
+            result.append(check(Math.round(share * 100) + "% updated", String.format(Locale.ROOT, "%.3f", millis), queries));
+        }
+
+        long start = System.nanoTime();
+        for (int from = 0; from < articles.size(); from += batchSize) {
+            List<Article> batch = new ArrayList<>();
+            for (Article article : articles.subList(from, Math.min(articles.size(), from + batchSize))) {
+                batch.add(new Article(article.getId(), article.getHeadline(), article.getContent(), article.getSummary()));
+            }
+            ArticleLoader.updateArticles(batch);
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / Math.max(1, articles.size());
+        result.append(check("batches of " + batchSize, String.format(Locale.ROOT, "%.3f", millis), queries));
+        ArticleLoader.compactIndex();
+        result.append(check("compacted", "", queries));
+        result.append(deltaTerms());
+
+        ArticleLoader.setScoring(scoring);
+        ArticleLoader.setQueryCacheBudget(cacheBudget);
+        return result.toString();
+    }
+
+    private static String check(String state, String millis, List<String> queries) throws IOException {
+        StringBuilder rows = new StringBuilder();
+        int k = SearchEngine.RESULTS_SHOWN;
+        try (ShardedIndex rebuilt = ShardedIndex.build(1, false)) {
+            for (ArticleLoader.Scoring ranking : ArticleLoader.Scoring.values()) {
+                ArticleLoader.setScoring(ranking);
+                int mismatches = 0;
+                int negative = 0;
+                for (String query : queries) {
+                    SearchResult expected = rebuilt.search(query, k, new SearchResult());
+                    SearchResult actual = ArticleLoader.search(query, k, new SearchResult());
+                    if (!sameLabels(expected, actual)) mismatches++;
+                    for (int rank = 0; rank < actual.size(); rank++) if (actual.getScore(rank) < 0) negative++;
+                }
+                rows.append(String.format(Locale.ROOT, "%-16s %12s %-12s %11d %10d%n", state, millis, ranking, mismatches, negative));
+            }
+        }
+        return rows.toString();
+    }
+
+    // A word only an article added since the last merge has must be found by typo tolerance, fuzzy, prefix and
+    // wildcard queries right away, through the delta segment's own term dictionary
+    private static String deltaTerms() {
+        boolean tolerant = ArticleLoader.isTypoTolerant();
+        ArticleLoader.setTypoTolerance(true);
+        ArticleLoader.addArticle(new Article("delta-term-check", "Quokkafest opens", "The quokkafest opens today.",
+                "Quokkafest"));
+        String[] expansions = {"quokkafeast", "quokkafes~", "quokka*", "*kkafest"};
+        int found = 0;
+        for (String query : expansions) {
+            if (ArticleLoader.search(query, SearchEngine.RESULTS_SHOWN, new SearchResult()).getTotalHits() == 1) found++;
+        }
+        ArticleLoader.deleteArticle("delta-term-check");
+        ArticleLoader.setTypoTolerance(tolerant);
+        return "---new term in the delta: " + found + " of " + expansions.length + " expansions find it---\n";
+    }
+
+    private static boolean sameLabels(SearchResult a, SearchResult b) {
+        if (a.getTotalHits() != b.getTotalHits() || a.size() != b.size()) return false;
+        for (int rank = 0; rank < a.size(); rank++) {
+            if (a.getDocId(rank) != b.getDocId(rank) || a.getScore(rank) != b.getScore(rank)
+                    || a.getRelevancy(rank) != b.getRelevancy(rank)) return false;
+        }
+        return true;
+    }
+}
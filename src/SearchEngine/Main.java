@@ -0,0 +1,55 @@
+package SearchEngine;
+
+import Data.ArticleLoader;
+import Data.ShardedIndex;
+import Index.Metrics;
+import Index.SearchResult;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+public class Main {
+    public static void main(String[] args) throws IOException {
+
+        ArticleLoader articleLoader = new ArticleLoader();
+        Scanner scanner = new Scanner(System.in);
+        List<String> options = Arrays.asList(args);
+
+        // --bm25 ranks by BM25F instead of the field bonuses
+        if (options.contains("--bm25")) ArticleLoader.setScoring(ArticleLoader.Scoring.BM25F);
+
+        // --metrics N records loading, indexing and search metrics and prints them every N seconds, --json as JSON
+        int metricsOption = options.indexOf("--metrics");
+        if (metricsOption >= 0 && metricsOption + 1 < args.length) {
+            Metrics.startReporter(1000L * Integer.parseInt(args[metricsOption + 1]), options.contains("--json"));
+        }
+
+        articleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        articleLoader.loadDelimiters("src/Data/delimiters.txt");
+        if (!articleLoader.loadIndex("src/Data/CNN_Articels.idx")) {
+            articleLoader.loadArticles("src/Data/CNN_Articels.csv");
+            articleLoader.indexArticles();
+            articleLoader.saveIndex("src/Data/CNN_Articels.idx");
+        }
+
+        // --shards N answers from N hash-partitioned shards, --sockets puts each one behind a loopback port
+        int shardOption = options.indexOf("--shards");
+        ShardedIndex shards = shardOption >= 0 && shardOption + 1 < args.length
+                ? ShardedIndex.build(Integer.parseInt(args[shardOption + 1]), options.contains("--sockets")) : null;
+
+        SearchEngine searchEngine = new SearchEngine();
+        ResultPrinter printer = new ResultPrinter(searchEngine);
+        SearchResult result = new SearchResult();
+
+        while(true){
+            System.out.print("SEARCH: ");
+            String searchQuery = scanner.nextLine();
+
+            if (shards != null) printer.print(shards.search(searchQuery, SearchEngine.RESULTS_SHOWN, result));
+            else printer.print(searchEngine.search(searchQuery, SearchEngine.RESULTS_SHOWN, result));
+        }
+
+    }
+}
@@ -0,0 +1,57 @@
+package SearchEngine;
+
+import Data.ArticleLoader;
+import Index.Metrics;
+import Index.SearchResult;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class MetricsTesting {
+    public static void main(String[] args) throws FileNotFoundException {
+
+        int passes = 20;
+
+        Metrics.setEnabled(true);
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        ArticleLoader.loadArticles("src/Data/CNN_Articels.csv");
+        ArticleLoader.indexArticles();
+
+        System.out.println(MetricsResults(BenchmarkSuite.queries("src/Data/search.txt"), passes));
+        System.out.println(Metrics.json());
+    }
+
+    // Search latency with recording off, on, and off again, with the query cache off, followed by the
+    // text dump: loading and indexing as recorded before, search from the enabled run only
+    public static String MetricsResults(List<String> queries, int passes) {
+        long cacheBudget = ArticleLoader.getQueryCacheBudget();
+        ArticleLoader.setQueryCacheBudget(0);
+        boolean enabled = Metrics.isEnabled();
+        SearchResult hits = new SearchResult();
+        int k = SearchEngine.RESULTS_SHOWN;
+
+        List<Benchmark.Result> results = new ArrayList<>();
+        for (boolean recording : new boolean[] {false, true, false}) {
+            Metrics.setEnabled(recording);
+            results.add(Benchmark.measure("search, metrics " + (recording ? "on" : "off"), 5, passes, queries.size(),
+                    iteration -> {
+                        long found = 0;
+                        for (String query : queries) found += ArticleLoader.search(query, k, hits).getTotalHits();
+                        return found;
+                    }));
+        }
+
+        StringBuilder result = new StringBuilder("---" + queries.size() + " queries x " + passes + " passes---\n");
+        for (Benchmark.Result r : results) result.append(r).append("\n");
+        result.append("---Metrics---\n").append(Metrics.text());
+
+        Metrics.setEnabled(enabled);
+        ArticleLoader.setQueryCacheBudget(cacheBudget);
+        return result.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package SearchEngine;
+
+import Data.ArticleLoader;
+import HashMaps.HashMapCustom;
+import HashMaps.StringIntHashMap;
+import Index.PostingList;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class ParallelIndexingTesting {
+    public static void main(String[] args) {
+
+        int[] threadCounts = {1, 2, 4, 8};
+        int rounds = 3;
+
+        String results = ParallelIndexingResults(threadCounts, rounds);
+
+        System.out.println(results);
+    }
+
+    public static String ParallelIndexingResults(int[] threadCounts, int rounds) {
+
+        ArticleLoader articleLoader = new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+
+        articleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        articleLoader.loadArticles("src/Data/CNN_Articels.csv");
+
+        // Serial index is the reference every parallel run has to reproduce
+        articleLoader.indexArticles(1);
+        HashMap<String, PostingList> serialPostings = copyOf(ArticleLoader.getIndexMap());
+        HashMap<String, Integer> serialFrequencies = copyOf(ArticleLoader.getWordFrequencyMap());
+
+        StringBuilder result = new StringBuilder("Threads | Best Indexing Time | Speedup | Identical\n");
+        long serialBest = 0;
+
+        for (int threads : threadCounts) {
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                best = Math.min(best, articleLoader.indexArticles(threads));
+            }
+            if (threads == 1) serialBest = best;
+
+            boolean identical = samePostings(serialPostings, ArticleLoader.getIndexMap())
+                    && serialFrequencies.equals(copyOf(ArticleLoader.getWordFrequencyMap()));
+            double speedup = (serialBest == 0 || best == 0) ? 1.0 : (double) serialBest / best;
+
+            result.append(threads).append(" | ").append(best).append("ms | ")
+                    .append(String.format(Locale.ROOT, "%.2f", speedup)).append("x | ").append(identical).append("\n");
+        }
+
+        return result.toString();
+    }
+
+    private static <V> HashMap<String, V> copyOf(HashMapCustom<String, V> map) {
+        HashMap<String, V> copy = new HashMap<>();
+        for (Map.Entry<String, V> entry : map.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue());
+        }
+        return copy;
+    }
+
+    private static HashMap<String, Integer> copyOf(StringIntHashMap map) {
+        HashMap<String, Integer> copy = new HashMap<>();
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            if (map.keyAt(slot) != null) copy.put(map.keyAt(slot), map.valueAt(slot));
+        }
+        return copy;
+    }
+
+    private static boolean samePostings(HashMap<String, PostingList> expected, HashMapCustom<String, PostingList> actual) {
+        if (expected.size() != actual.size()) return false;
+        for (Map.Entry<String, PostingList> entry : expected.entrySet()) {
+            PostingList other = actual.get(entry.getKey());
+            if (other == null || !entry.getValue().getData().equals(other.getData())) return false;
+        }
+        return true;
+    }
+}
@@ -2,9 +2,13 @@ package SearchEngine;
 
 import Data.ArticleLoader;
 import HashMaps.HashMapCustom;
+import Index.SearchResult;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 
 import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
@@ -39,30 +43,98 @@ public class PerformanceTesting {
         articleLoader.loadStopWords("src/Data/stop_words_en.txt");
         articleLoader.loadDelimiters("src/Data/delimiters.txt");
         long collisionCount = articleLoader.loadArticles("src/Data/CNN_Articels.csv");
+        long heapBeforeIndex = usedHeap();
         long indexTime = articleLoader.indexArticles();
+        long indexHeap = usedHeap() - heapBeforeIndex;
 
 
         File file = new File("src/Data/search.txt");
         Scanner scan = new Scanner(file);
 
+        SearchEngine searchEngine = new SearchEngine();
+        SearchResult searchResult = new SearchResult();
+        long[] phaseNanos = new long[4]; // normalize, postings, score, rank
+
+        // the query cache is off, so each line is searched and ranked instead of looked up
+        long cacheBudget = ArticleLoader.getQueryCacheBudget();
+        ArticleLoader.setQueryCacheBudget(0);
         long searchTimeCount=0;
         int wordCount=0;
+        List<String> queries = new ArrayList<>();
         while (scan.hasNextLine()) {
             String line = scan.nextLine();
-            searchTimeCount += articleLoader.searchArticles(line);
+            queries.add(line);
+            searchEngine.search(line, SearchEngine.RESULTS_SHOWN, searchResult); // printing stays out of the timing
+            searchTimeCount += searchResult.getTotalNanos();
+            phaseNanos[0] += searchResult.getNormalizeNanos();
+            phaseNanos[1] += searchResult.getPostingsNanos();
+            phaseNanos[2] += searchResult.getScoreNanos();
+            phaseNanos[3] += searchResult.getRankNanos();
             wordCount++;
         }
-        double searchTime = searchTimeCount/wordCount;
-
-        articleLoader.searchArticles("src/Data/search.txt");
+        ArticleLoader.setQueryCacheBudget(cacheBudget);
+        double msPerQuery = wordCount == 0 ? 0 : 1 / (wordCount * 1000000.0); // nanos over all queries -> ms per query
+        double searchTime = searchTimeCount * msPerQuery;
 
         String result = "Load Factor (alpha): " + loadFactor + "\n" +
                         "Hash Function: " + hashFunctionType + "\n" +
                         "Collision Handling: " + collisionType + "\n" +
                         "Collision Count: " + collisionCount + "\n" +
                         "Indexing Time: " + indexTime + "ms\n" +
-                        "Average Search Time: " + searchTime + "ms";
+                        "Index Heap: " + (indexHeap / (1024 * 1024)) + "MB\n" +
+                        "Average Search Time: " + String.format(Locale.ROOT, "%.3f", searchTime) + "ms\n" +
+                        String.format(Locale.ROOT, "  normalize %.3fms | postings %.3fms | score %.3fms | rank %.3fms%n",
+                                phaseNanos[0] * msPerQuery, phaseNanos[1] * msPerQuery,
+                                phaseNanos[2] * msPerQuery, phaseNanos[3] * msPerQuery) +
+                        articleLoader.getQueryCache().stats() + "\n" +
+                        throughput(searchEngine, queries);
 
         return result;
     }
+
+    // Queries per second over the whole file with the query cache off: a search call per line against
+    // searchBatch on one thread and on every core. Batched rankings are checked against the per-query ones.
+    private static String throughput(SearchEngine searchEngine, List<String> queries) {
+        long cacheBudget = ArticleLoader.getQueryCacheBudget();
+        ArticleLoader.setQueryCacheBudget(0);
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        SearchResult[] expected = new SearchResult[queries.size()];
+        for (int i = 0; i < expected.length; i++) expected[i] = searchEngine.search(queries.get(i), 0, new SearchResult());
+        int mismatches = 0;
+        for (int threadCount : new int[] {1, threads}) {
+            SearchResult[] batched = searchEngine.searchBatch(queries, 0, threadCount);
+            for (int i = 0; i < expected.length; i++) if (!sameRanking(expected[i], batched[i])) mismatches++;
+        }
+
+        SearchResult reused = new SearchResult();
+        Benchmark.Result perQuery = Benchmark.measure("per query", 2, 5, queries.size(), iteration -> {
+            long hits = 0;
+            for (String query : queries) hits += searchEngine.search(query, 0, reused).getTotalHits();
+            return hits;
+        });
+        Benchmark.Result batch = Benchmark.measure("batch", 2, 5, queries.size(),
+                iteration -> searchEngine.searchBatch(queries, 0, 1).length);
+        Benchmark.Result parallelBatch = Benchmark.measure("parallel batch", 2, 5, queries.size(),
+                iteration -> searchEngine.searchBatch(queries, 0, threads).length);
+
+        ArticleLoader.setQueryCacheBudget(cacheBudget);
+        return String.format(Locale.ROOT, "Throughput (query cache off): per query %.0f q/s | batch %.0f q/s | batch on %d threads %.0f q/s"
+                        + " | %d mismatches%n", 1e9 / perQuery.nanosPerOp(), 1e9 / batch.nanosPerOp(), threads,
+                1e9 / parallelBatch.nanosPerOp(), mismatches);
+    }
+
+    private static boolean sameRanking(SearchResult a, SearchResult b) {
+        if (a.getTotalHits() != b.getTotalHits() || a.size() != b.size()) return false;
+        for (int rank = 0; rank < a.size(); rank++) {
+            if (a.getDocId(rank) != b.getDocId(rank) || a.getScore(rank) != b.getScore(rank)) return false;
+        }
+        return true;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
 }
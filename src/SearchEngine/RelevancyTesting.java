@@ -0,0 +1,73 @@
+package SearchEngine;
+
+import Data.ArticleLoader;
+import Index.SearchResult;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class RelevancyTesting {
+    public static void main(String[] args) throws FileNotFoundException {
+
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        ArticleLoader.loadArticles("src/Data/CNN_Articels.csv");
+        ArticleLoader.indexArticles();
+
+        System.out.println(RelevancyResults(BenchmarkSuite.queries("src/Data/search.txt")));
+    }
+
+    // A word no article has can't move a hit or its relevancy label: every query is run as is, with a stop
+    // word appended, and with a word that isn't indexed appended (typo tolerance off, so it stays unknown),
+    // one by one and as a batch, under both scorings. Counts the queries whose hits, scores or labels differ.
+    public static String RelevancyResults(List<String> queries) {
+        SearchEngine searchEngine = new SearchEngine();
+        ArticleLoader.Scoring scoring = ArticleLoader.getScoring();
+        boolean tolerant = ArticleLoader.isTypoTolerant();
+        long cacheBudget = ArticleLoader.getQueryCacheBudget();
+        ArticleLoader.setQueryCacheBudget(0);
+        ArticleLoader.setTypoTolerance(false);
+        int k = SearchEngine.RESULTS_SHOWN;
+
+        StringBuilder result = new StringBuilder(String.format(Locale.ROOT, "%-12s %-14s %10s %10s%n",
+                "scoring", "appended", "search", "batch"));
+        for (ArticleLoader.Scoring ranking : ArticleLoader.Scoring.values()) {
+            ArticleLoader.setScoring(ranking);
+            SearchResult[] expected = new SearchResult[queries.size()];
+            for (int i = 0; i < queries.size(); i++) expected[i] = searchEngine.search(queries.get(i), k, new SearchResult());
+
+            for (String appended : new String[] {"the", "xqzwv"}) {
+                List<String> extended = new ArrayList<>();
+                for (String query : queries) extended.add(query + " " + appended);
+
+                int searchMismatches = 0;
+                int batchMismatches = 0;
+                SearchResult[] batched = searchEngine.searchBatch(extended, k, 1);
+                for (int i = 0; i < queries.size(); i++) {
+                    if (!sameLabels(expected[i], searchEngine.search(extended.get(i), k, new SearchResult()))) searchMismatches++;
+                    if (!sameLabels(expected[i], batched[i])) batchMismatches++;
+                }
+                result.append(String.format(Locale.ROOT, "%-12s %-14s %10d %10d%n", ranking, appended, searchMismatches, batchMismatches));
+            }
+        }
+
+        ArticleLoader.setScoring(scoring);
+        ArticleLoader.setTypoTolerance(tolerant);
+        ArticleLoader.setQueryCacheBudget(cacheBudget);
+        return result.toString();
+    }
+
+    private static boolean sameLabels(SearchResult a, SearchResult b) {
+        if (a.getTotalHits() != b.getTotalHits() || a.size() != b.size()) return false;
+        for (int rank = 0; rank < a.size(); rank++) {
+            if (a.getDocId(rank) != b.getDocId(rank) || a.getScore(rank) != b.getScore(rank)
+                    || a.getRelevancy(rank) != b.getRelevancy(rank)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,54 @@
+package SearchEngine;
+
+import Data.Article;
+import Index.SearchResult;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+// Console presentation of a SearchResult
+public class ResultPrinter {
+
+    private final SearchEngine searchEngine;
+    private final PrintStream out;
+
+    public ResultPrinter(SearchEngine searchEngine, PrintStream out) {
+        this.searchEngine = searchEngine;
+        this.out = out;
+    }
+
+    public ResultPrinter(SearchEngine searchEngine) {
+        this(searchEngine, System.out);
+    }
+
+    public void print(SearchResult result) {
+        if (result.isEmptyQuery()) {
+            out.println("No word found for given search query");
+            return;
+        }
+
+        // Hiç eşleşme yoksa
+        if (result.getTotalHits() == 0) {
+            out.println("No articles found for your query.");
+            return;
+        }
+
+        out.println("\n--- Search Results for '" + result.getQuery() + "' ---");
+        for (int rank = 0; rank < result.size(); rank++) {
+            Article article = searchEngine.getArticle(result.getDocId(rank));
+            if (article == null) continue;
+
+            out.println("[" + result.getRelevancy(rank).getLabel() + "][score: " + result.getScore(rank) + "pts] "
+                    + article.getHeadline());
+        }
+
+        out.println("\nTotal results: " + result.getTotalHits());
+    }
+
+    // Per-phase breakdown of where the query time went
+    public void printTimings(SearchResult result) {
+        out.println(String.format(Locale.ROOT, "normalize %.3f ms | postings %.3f ms | score %.3f ms | rank %.3f ms | total %.3f ms%s",
+                result.getNormalizeNanos() / 1e6, result.getPostingsNanos() / 1e6, result.getScoreNanos() / 1e6,
+                result.getRankNanos() / 1e6, result.getTotalNanos() / 1e6, result.isCached() ? " (cached)" : ""));
+    }
+}
@@ -1,25 +1,57 @@
 package SearchEngine;
 
+import Data.Article;
 import Data.ArticleLoader;
-import java.util.Scanner;
+import Data.IndexSnapshot;
+import Index.SearchResult;
 
-public class Main {
-    public static void main(String[] args) {
+import java.util.List;
 
-        ArticleLoader articleLoader = new ArticleLoader();
-        Scanner scanner = new Scanner(System.in);
+/*
+ * Query API over the articles loaded by ArticleLoader.
+ *
+ * Returns ranked hits as a SearchResult and never prints; ResultPrinter turns a result into console output.
+ * A SearchEngine can be shared by any number of threads as long as each thread uses its own SearchResult.
+ * By default every call reads the latest published index; pass a snapshot to pin one version.
+ */
+public class SearchEngine {
 
-        articleLoader.loadStopWords("src/Data/stop_words_en.txt");
-        articleLoader.loadDelimiters("src/Data/delimiters.txt");
-        articleLoader.loadArticles("src/Data/CNN_Articels.csv");
-        articleLoader.indexArticles();
+    public static final int RESULTS_SHOWN = 25;
 
-        while(true){
-            System.out.print("SEARCH: ");
-            String searchQuery = scanner.nextLine();
+    private final IndexSnapshot pinned; // null -> always the latest snapshot
 
-            articleLoader.searchArticles(searchQuery);
-        }
+    public SearchEngine() {
+        this(null);
+    }
+
+    public SearchEngine(IndexSnapshot snapshot) {
+        this.pinned = snapshot;
+    }
+
+    public SearchResult search(String query) {
+        return search(query, RESULTS_SHOWN, new SearchResult());
+    }
+
+    // k <= 0 keeps every hit; pass the previous result back in to reuse its arrays
+    public SearchResult search(String query, int k, SearchResult result) {
+        return ArticleLoader.search(snapshot(), query, k, result);
+    }
+
+    // Many queries at once, sharing postings decoding between queries with words in common; see
+    // ArticleLoader.searchBatch. Results come back in query order.
+    public SearchResult[] searchBatch(List<String> queries, int k, int threadCount) {
+        return ArticleLoader.searchBatch(snapshot(), queries, k, threadCount);
+    }
+
+    public Article getArticle(int docId) {
+        return snapshot().getArticle(docId);
+    }
+
+    public int getDocumentCount() {
+        return snapshot().getDocumentCount();
+    }
 
+    private IndexSnapshot snapshot() {
+        return pinned != null ? pinned : ArticleLoader.getSnapshot();
     }
 }
@@ -0,0 +1,91 @@
+package SearchEngine;
+
+import Data.ArticleLoader;
+import Data.ShardedIndex;
+import Index.SearchResult;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class ShardTesting {
+    public static void main(String[] args) throws IOException {
+
+        int[] shardCounts = {1, 2, 4, 8};
+        int passes = 3;
+
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        ArticleLoader.loadArticles("src/Data/CNN_Articels.csv");
+        ArticleLoader.indexArticles();
+
+        System.out.println(ShardResults(BenchmarkSuite.queries("src/Data/search.txt"), shardCounts, passes));
+    }
+
+    // Build time and query latency of the index split into 1..n shards, in-process and over loopback
+    // sockets, under both scorings. Every merged top 25 is checked against the single index; the query
+    // cache is off.
+    public static String ShardResults(List<String> queries, int[] shardCounts, int passes) throws IOException {
+        SearchEngine single = new SearchEngine();
+        int k = SearchEngine.RESULTS_SHOWN;
+        long cacheBudget = ArticleLoader.getQueryCacheBudget();
+        ArticleLoader.setQueryCacheBudget(0);
+        ArticleLoader.Scoring scoring = ArticleLoader.getScoring();
+
+        StringBuilder result = new StringBuilder(String.format(Locale.ROOT, "%-22s %10s %10s %10s %10s %11s%n",
+                "index", "build ms", "p50 ms", "p99 ms", "mean ms", "mismatches"));
+        for (ArticleLoader.Scoring ranking : ArticleLoader.Scoring.values()) {
+            ArticleLoader.setScoring(ranking);
+            result.append("---").append(ranking).append("---\n");
+
+            int[] expected = new int[queries.size()];
+            SearchResult reference = new SearchResult();
+            for (int i = 0; i < queries.size(); i++) expected[i] = checksum(single.search(queries.get(i), k, reference));
+            result.append(row("single index", 0, queries, expected, passes, (query, hits) -> single.search(query, k, hits)));
+
+            for (int shardCount : shardCounts) {
+                for (boolean sockets : new boolean[] {false, true}) {
+                    try (ShardedIndex shards = ShardedIndex.build(shardCount, sockets)) {
+                        result.append(row(shardCount + " shards" + (sockets ? " (sockets)" : ""), shards.getBuildMillis(),
+                                queries, expected, passes, (query, hits) -> shards.search(query, k, hits)));
+                    }
+                }
+            }
+        }
+
+        ArticleLoader.setScoring(scoring);
+        ArticleLoader.setQueryCacheBudget(cacheBudget);
+        return result.toString();
+    }
+
+    private interface Searcher {
+        SearchResult search(String query, SearchResult result);
+    }
+
+    private static String row(String name, long buildMillis, List<String> queries, int[] expected, int passes,
+                              Searcher searcher) {
+        SearchResult result = new SearchResult();
+        int mismatches = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            if (checksum(searcher.search(queries.get(i), result)) != expected[i]) mismatches++;
+        }
+
+        Benchmark.Result latency = Benchmark.measure(name, queries.size(), queries.size() * passes, 1,
+                iteration -> searcher.search(queries.get(iteration % queries.size()), result).getTotalHits());
+        return String.format(Locale.ROOT, "%-22s %10d %10.3f %10.3f %10.3f %11d%n", name, buildMillis,
+                latency.percentileNanos(50) / 1e6, latency.percentileNanos(99) / 1e6, latency.meanNanos() / 1e6,
+                mismatches);
+    }
+
+    private static int checksum(SearchResult result) {
+        int checksum = result.getTotalHits();
+        for (int rank = 0; rank < result.size(); rank++) {
+            checksum = 31 * checksum + result.getDocId(rank);
+            checksum = 31 * checksum + result.getScore(rank);
+        }
+        return checksum;
+    }
+}
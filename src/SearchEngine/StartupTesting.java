@@ -0,0 +1,48 @@
+package SearchEngine;
+
+import Data.ArticleLoader;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class StartupTesting {
+    public static void main(String[] args) {
+
+        String csvFile = "src/Data/CNN_Articels.csv";
+        String indexFile = "src/Data/CNN_Articels.idx";
+
+        String results = StartupResults(csvFile, indexFile, "president election");
+
+        System.out.println(results);
+    }
+
+    // Time until the first query is answered: parsing + indexing the CSV versus opening the binary snapshot
+    public static String StartupResults(String csvFile, String indexFile, String firstQuery) {
+
+        SearchEngine searchEngine = new SearchEngine();
+        ResultPrinter printer = new ResultPrinter(searchEngine);
+
+        long start = System.nanoTime();
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        ArticleLoader.loadArticles(csvFile);
+        ArticleLoader.indexArticles();
+        printer.print(searchEngine.search(firstQuery));
+        long csvStartup = (System.nanoTime() - start) / 1000000;
+
+        long saveTime = ArticleLoader.saveIndex(indexFile);
+
+        start = System.nanoTime();
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        if (!ArticleLoader.loadIndex(indexFile)) {
+            return "ERROR: " + indexFile + " could not be opened.";
+        }
+        printer.print(searchEngine.search(firstQuery));
+        long snapshotStartup = (System.nanoTime() - start) / 1000000;
+
+        return "CSV Load + Indexing Startup: " + csvStartup + "ms\n" +
+               "Snapshot Write Time: " + saveTime + "ms\n" +
+               "Snapshot Startup: " + snapshotStartup + "ms";
+    }
+}
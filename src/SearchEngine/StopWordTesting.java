@@ -0,0 +1,120 @@
+package SearchEngine;
+
+import Data.ArticleLoader;
+import HashMaps.PerfectHashSet;
+import HashMaps.StringIntHashMap;
+import Index.Tokenizer;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class StopWordTesting {
+    public static void main(String[] args) throws FileNotFoundException {
+
+        int tokenLimit = 1000000;
+
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadArticles("src/Data/CNN_Articels.csv");
+
+        Tokens tokens = tokens(tokenLimit);
+        System.out.println(StopWordResults(stopWords("src/Data/stop_words_en.txt"), tokens.chars, tokens.offsets));
+    }
+
+    // Stop word membership for every token of the corpus sample, as the indexer asks it: from a char buffer,
+    // token i is chars[offsets[i], offsets[i + 1]). The HashSet has to be given a String, so that run includes
+    // the per-token copy it forces.
+    public static String StopWordResults(List<String> stopWords, char[] chars, int[] offsets) {
+        int tokenCount = offsets.length - 1;
+        HashSet<String> hashSet = new HashSet<>(stopWords);
+        StringIntHashMap map = new StringIntHashMap();
+        for (String word : stopWords) map.put(word, 1);
+        PerfectHashSet perfectHash = new PerfectHashSet(stopWords);
+
+        String[] tokenStrings = new String[tokenCount];
+        for (int i = 0; i < tokenCount; i++) tokenStrings[i] = new String(chars, offsets[i], offsets[i + 1] - offsets[i]);
+
+        List<Benchmark.Result> results = new ArrayList<>();
+        results.add(Benchmark.measure("HashSet<String> (new String per token)", 5, 20, tokenCount, iteration -> {
+            long hits = 0;
+            for (int i = 0; i < tokenCount; i++) {
+                if (hashSet.contains(new String(chars, offsets[i], offsets[i + 1] - offsets[i]))) hits++;
+            }
+            return hits;
+        }));
+        results.add(Benchmark.measure("HashSet<String> (Strings given, hash cached)", 5, 20, tokenCount, iteration -> {
+            long hits = 0;
+            for (String token : tokenStrings) if (hashSet.contains(token)) hits++;
+            return hits;
+        }));
+        results.add(Benchmark.measure("StringIntHashMap (Strings given)", 5, 20, tokenCount, iteration -> {
+            long hits = 0;
+            for (String token : tokenStrings) if (map.containsKey(token)) hits++;
+            return hits;
+        }));
+        results.add(Benchmark.measure("PerfectHashSet (char buffer)", 5, 20, tokenCount, iteration -> {
+            long hits = 0;
+            for (int i = 0; i < tokenCount; i++) {
+                if (perfectHash.contains(chars, offsets[i], offsets[i + 1] - offsets[i])) hits++;
+            }
+            return hits;
+        }));
+
+        int hits = 0;
+        int mismatches = 0;
+        for (int i = 0; i < tokenCount; i++) {
+            boolean expected = hashSet.contains(tokenStrings[i]);
+            if (expected) hits++;
+            if (perfectHash.contains(chars, offsets[i], offsets[i + 1] - offsets[i]) != expected) mismatches++;
+        }
+
+        StringBuilder result = new StringBuilder("---" + stopWords.size() + " stop words, " + tokenCount
+                + " tokens, " + String.format(Locale.ROOT, "%.1f", 100.0 * hits / Math.max(1, tokenCount)) + "% stop words, "
+                + mismatches + " mismatches---\n");
+        for (Benchmark.Result r : results) result.append(r).append("\n");
+        return result.toString();
+    }
+
+    private static class Tokens {
+        char[] chars = new char[1 << 16];
+        int[] offsets = new int[1 << 12];
+    }
+
+    // Corpus tokens in text order, packed back to back
+    private static Tokens tokens(int limit) {
+        Tokens tokens = new Tokens();
+        int count = 0;
+        int length = 0;
+        Tokenizer.Tokens cursor = Tokenizer.WORD_CHARS.tokens();
+        for (int docId = 0; docId < ArticleLoader.getDocumentCount() && count < limit; docId++) {
+            cursor.reset(ArticleLoader.getArticle(docId).getContent());
+            while (count < limit && cursor.next()) {
+                if (length + cursor.length() > tokens.chars.length) {
+                    tokens.chars = Arrays.copyOf(tokens.chars, 2 * (length + cursor.length()));
+                }
+                if (count + 2 > tokens.offsets.length) tokens.offsets = Arrays.copyOf(tokens.offsets, 2 * tokens.offsets.length);
+                System.arraycopy(cursor.buffer(), 0, tokens.chars, length, cursor.length());
+                length += cursor.length();
+                tokens.offsets[++count] = length;
+            }
+        }
+        tokens.offsets = Arrays.copyOf(tokens.offsets, count + 1);
+        return tokens;
+    }
+
+    private static List<String> stopWords(String filename) throws FileNotFoundException {
+        List<String> words = new ArrayList<>();
+        try (Scanner scanner = new Scanner(new File(filename))) {
+            while (scanner.hasNext()) words.add(scanner.next().toLowerCase());
+        }
+        return words;
+    }
+}
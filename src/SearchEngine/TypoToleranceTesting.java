@@ -0,0 +1,123 @@
+package SearchEngine;
+
+import Data.ArticleLoader;
+import Index.Query;
+import Index.SearchResult;
+import Index.TermDictionary;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static HashMaps.HashMapCustom.CollisionType.LINEAR_PROBING;
+import static HashMaps.HashMapCustom.HashFunctionType.PAF;
+
+public class TypoToleranceTesting {
+    public static void main(String[] args) {
+
+        int typoCount = 1000;
+
+        new ArticleLoader(101, 0.8, PAF, LINEAR_PROBING);
+        ArticleLoader.loadStopWords("src/Data/stop_words_en.txt");
+        ArticleLoader.loadArticles("src/Data/CNN_Articels.csv");
+        ArticleLoader.indexArticles();
+
+        System.out.println(TypoToleranceResults(typoCount));
+    }
+
+    // Term lookup latency of the n-gram dictionary against scanning the whole vocabulary, on indexed words
+    // with one random letter replaced, and search latency of those misspellings with tolerance off and on.
+    // Fuzzy matches are checked against the scan with no limit; the query cache is off.
+    public static String TypoToleranceResults(int typoCount) {
+        List<String> vocabulary = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : ArticleLoader.getIndexMap().entrySet()) vocabulary.add(entry.getKey());
+        TermDictionary dictionary = new TermDictionary(ArticleLoader.getIndexMap().entrySet());
+
+        Random random = new Random(42);
+        String[] typos = new String[typoCount];
+        for (int i = 0; i < typoCount; i++) {
+            char[] word = vocabulary.get(random.nextInt(vocabulary.size())).toCharArray();
+            word[random.nextInt(word.length)] = (char) ('a' + random.nextInt(26));
+            typos[i] = new String(word);
+        }
+
+        int mismatches = 0;
+        for (String typo : typos) {
+            int maxEdits = Query.autoEdits(typo.length());
+            if (!new HashSet<>(dictionary.fuzzy(typo, maxEdits, vocabulary.size())).equals(scan(vocabulary, typo, maxEdits))) {
+                mismatches++;
+            }
+        }
+
+        List<Benchmark.Result> results = new ArrayList<>();
+        results.add(Benchmark.measure("fuzzy, vocabulary scan", 1, 3, typoCount, iteration -> {
+            long found = 0;
+            for (String typo : typos) found += scan(vocabulary, typo, Query.autoEdits(typo.length())).size();
+            return found;
+        }));
+        results.add(Benchmark.measure("fuzzy, n-gram dictionary", 5, 20, typoCount, iteration -> {
+            long found = 0;
+            for (String typo : typos) found += dictionary.fuzzy(typo, Query.autoEdits(typo.length()), 8).size();
+            return found;
+        }));
+        results.add(Benchmark.measure("prefix (3 chars)", 5, 20, typoCount, iteration -> {
+            long found = 0;
+            for (String typo : typos) found += dictionary.prefix(typo.substring(0, Math.min(3, typo.length())), 64).size();
+            return found;
+        }));
+        results.add(Benchmark.measure("wildcard (*suffix)", 5, 20, typoCount, iteration -> {
+            long found = 0;
+            for (String typo : typos) found += dictionary.wildcard("*" + typo.substring(typo.length() / 2), 64).size();
+            return found;
+        }));
+
+        long cacheBudget = ArticleLoader.getQueryCacheBudget();
+        ArticleLoader.setQueryCacheBudget(0);
+        boolean tolerant = ArticleLoader.isTypoTolerant();
+        SearchResult hits = new SearchResult();
+        for (boolean typoTolerance : new boolean[] {false, true}) {
+            ArticleLoader.setTypoTolerance(typoTolerance);
+            results.add(Benchmark.measure("search, tolerance " + (typoTolerance ? "on" : "off"), 5, 20, typoCount,
+                    iteration -> {
+                        long found = 0;
+                        for (String typo : typos) found += ArticleLoader.search(typo, SearchEngine.RESULTS_SHOWN, hits).getTotalHits();
+                        return found;
+                    }));
+        }
+        ArticleLoader.setTypoTolerance(tolerant);
+        ArticleLoader.setQueryCacheBudget(cacheBudget);
+
+        StringBuilder result = new StringBuilder("---" + dictionary.size() + " terms, " + typoCount + " misspellings, "
+                + mismatches + " fuzzy mismatches---\n");
+        for (Benchmark.Result r : results) result.append(r).append("\n");
+        return result.toString();
+    }
+
+    // Every term within maxEdits of the word, by full Levenshtein against the whole vocabulary
+    private static HashSet<String> scan(List<String> vocabulary, String word, int maxEdits) {
+        HashSet<String> found = new HashSet<>();
+        for (String term : vocabulary) {
+            if (Math.abs(term.length() - word.length()) <= maxEdits && distance(term, word) <= maxEdits) found.add(term);
+        }
+        return found;
+    }
+
+    private static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}